@@ -0,0 +1,72 @@
+package gr.example.blog.benchmark;
+
+import gr.example.blog.security.BlogUserDetails;
+import gr.example.blog.security.JwtTokenProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Token issue and check. The cached provider answers repeated checks from its verified token cache,
+//the uncached one keeps no entries and verifies the signature on every call
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET = "80c92cdcf80ee8017b7dfb97cc37dd656e3ab632b9dafe407feda58ea538ce95";
+    private static final long EXPIRATION_MILLIS = 604800000L;
+
+    private JwtTokenProvider cachedProvider;
+    private JwtTokenProvider uncachedProvider;
+
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachedProvider = new JwtTokenProvider(SECRET, EXPIRATION_MILLIS, 10000);
+        uncachedProvider = new JwtTokenProvider(SECRET, EXPIRATION_MILLIS, 0);
+
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        BlogUserDetails userDetails = new BlogUserDetails("reader@example.com", "", authorities, 3L);
+        authentication = new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+
+        token = cachedProvider.generateToken(authentication);
+        cachedProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachedProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public boolean validateTokenCached() {
+        return cachedProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validateTokenUncached() {
+        return uncachedProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameCached() {
+        return cachedProvider.getUsername(token);
+    }
+
+    @Benchmark
+    public String getUsernameUncached() {
+        return uncachedProvider.getUsername(token);
+    }
+}
@@ -0,0 +1,116 @@
+package gr.example.blog.benchmark;
+
+import gr.example.blog.dto.CommentDto;
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.mapper.CommentMapper;
+import gr.example.blog.mapper.CommentMapperImpl;
+import gr.example.blog.mapper.PostMapper;
+import gr.example.blog.mapper.PostMapperImpl;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Comment;
+import gr.example.blog.model.Post;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+//Entity to dto mapping of a post with its comments, the generated MapStruct mappers against
+//ModelMapper, which resolves the same mapping by reflection
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostMappingBenchmark {
+
+    @Param({"0", "10", "100", "1000"})
+    private int commentCount;
+
+    //the generated mappers are wired the way the application wires them
+    private AnnotationConfigApplicationContext context;
+    private PostMapper postMapper;
+    private CommentMapper commentMapper;
+
+    private ModelMapper modelMapper;
+
+    private Post post;
+    private Comment comment;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(PostMapperImpl.class, CommentMapperImpl.class);
+        postMapper = context.getBean(PostMapper.class);
+        commentMapper = context.getBean(CommentMapper.class);
+
+        modelMapper = new ModelMapper();
+
+        Category category = new Category();
+        category.setId(7L);
+        category.setName("Performance");
+
+        post = new Post();
+        post.setId(1L);
+        post.setTitle("Mapping benchmark");
+        post.setDescription("A post with a configurable number of comments");
+        post.setContent("x".repeat(4000));
+        post.setCategory(category);
+        post.setCommentCount((long) commentCount);
+
+        Set<Comment> comments = new HashSet<>();
+        for (int i = 0; i < commentCount; i++) {
+            comments.add(newComment(i));
+        }
+        post.setComments(comments);
+        comment = newComment(commentCount);
+
+        //ModelMapper builds its type maps on first use, that cost is left out of the measurement
+        modelMapper.map(post, PostDto.class);
+        modelMapper.map(comment, CommentDto.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PostDto postMapStruct() {
+        return postMapper.toDto(post);
+    }
+
+    @Benchmark
+    public PostDto postModelMapper() {
+        return modelMapper.map(post, PostDto.class);
+    }
+
+    @Benchmark
+    public CommentDto commentMapStruct() {
+        return commentMapper.toDto(comment);
+    }
+
+    @Benchmark
+    public CommentDto commentModelMapper() {
+        return modelMapper.map(comment, CommentDto.class);
+    }
+
+
+    private Comment newComment(int index) {
+        Comment newComment = new Comment();
+        newComment.setId((long) index);
+        newComment.setName("Reader " + index);
+        newComment.setEmail("reader" + index + "@example.com");
+        newComment.setBody("Comment body number " + index);
+        newComment.setPost(post);
+        return newComment;
+    }
+}
@@ -0,0 +1,50 @@
+package gr.example.blog.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.example.blog.dto.PostResponse;
+import gr.example.blog.dto.PostSummaryDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Serialization of one page of post summaries, with the object mapper defaults Spring MVC uses
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostResponseSerializationBenchmark {
+
+    @Param({"10", "50", "100"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+
+    private PostResponse page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<PostSummaryDto> summaries = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            summaries.add(new PostSummaryDto((long) i, "Post title " + i,
+                    "Description of post " + i + " as shown in the listings", (long) (i % 10), (long) i * 3));
+        }
+        page = new PostResponse(summaries, 0, pageSize, 10_000L, 10_000 / pageSize, false);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
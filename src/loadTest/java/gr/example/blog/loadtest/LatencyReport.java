@@ -0,0 +1,174 @@
+package gr.example.blog.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//Merges the per client histograms, prints the results and keeps them as json next to the
+//results of the other thread mode, so two runs can be compared. A results file kept from an
+//earlier run serves as the baseline that later runs are checked against
+public class LatencyReport {
+
+    private static final String TOTAL = "TOTAL";
+
+    private static final String EMBEDDED_DATABASE_NOTE = "H2 runs in process and its driver does not hold"
+            + " monitors around socket reads the way MySQL Connector/J does, so these numbers do not show"
+            + " virtual thread pinning on JDBC calls. Run with -Ploadtest.jdbc-url=jdbc:mysql://... to measure it";
+
+    private final LoadTestSettings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final ObjectNode results = objectMapper.createObjectNode();
+
+    public LatencyReport(LoadTestSettings settings, Map<Workload.Operation, List<Histogram>> histograms,
+                         Map<Workload.Operation, LongAdder> errors) {
+        this.settings = settings;
+
+        results.put("mode", settings.getMode());
+        results.put("database", settings.getDatabase());
+        results.put("settings", settings.toString());
+        if (settings.isEmbeddedDatabase()) {
+            results.put("note", EMBEDDED_DATABASE_NOTE);
+        }
+        ObjectNode operations = results.putObject("operations");
+
+        Histogram total = new Histogram(3);
+        long totalErrors = 0;
+        for (Workload.Operation operation : Workload.Operation.values()) {
+            Histogram merged = new Histogram(3);
+            histograms.get(operation).forEach(merged::add);
+            long operationErrors = errors.get(operation).sum();
+
+            operations.set(operation.name(), toJson(operation.getEndpoint(), merged, operationErrors));
+            total.add(merged);
+            totalErrors += operationErrors;
+        }
+        operations.set(TOTAL, toJson("all requests", total, totalErrors));
+    }
+
+    public void print() {
+        System.out.println();
+        System.out.println("Load test, " + settings);
+        System.out.printf(Locale.ROOT, "%-40s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+
+        results.get("operations").forEach(row -> {
+            System.out.printf(Locale.ROOT, "%-40s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.get("endpoint").asText(), row.get("requests").asLong(), row.get("errors").asLong(),
+                    row.get("throughput").asDouble(), row.get("p50").asDouble(), row.get("p95").asDouble(),
+                    row.get("p99").asDouble(), row.get("max").asDouble());
+        });
+
+        if (settings.isEmbeddedDatabase()) {
+            System.out.println();
+            System.out.println("Note: " + EMBEDDED_DATABASE_NOTE);
+        }
+    }
+
+    public void write() throws IOException {
+        Files.createDirectories(settings.getResultsDir());
+        Path file = resultsFile(settings.getMode());
+        objectMapper.writeValue(file.toFile(), results);
+        System.out.println("Results written to " + file);
+    }
+
+    //compares with the last run of the other mode, if there is one
+    public void compare() throws IOException {
+        Path otherFile = resultsFile(settings.getOtherMode());
+        if (!Files.exists(otherFile)) {
+            System.out.println("Run the load test in " + settings.getOtherMode() + " mode too, to compare the two");
+            return;
+        }
+
+        JsonNode otherResults = objectMapper.readTree(otherFile.toFile());
+        String otherDatabase = otherResults.path("database").asText("h2");
+        if (!otherDatabase.equals(settings.getDatabase())) {
+            System.out.println("The last " + settings.getOtherMode() + " run used " + otherDatabase
+                    + ", run it again on " + settings.getDatabase() + " to compare the two");
+            return;
+        }
+
+        JsonNode other = otherResults.get("operations");
+        JsonNode current = results.get("operations");
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-40s %16s %16s %16s %16s%n", "endpoint",
+                settings.getMode() + " req/s", settings.getOtherMode() + " req/s",
+                settings.getMode() + " p99", settings.getOtherMode() + " p99");
+        current.fields().forEachRemaining(entry -> {
+            JsonNode otherRow = other.get(entry.getKey());
+            if (otherRow == null) return;
+            JsonNode row = entry.getValue();
+            System.out.printf(Locale.ROOT, "%-40s %16.1f %16.1f %16.2f %16.2f%n", row.get("endpoint").asText(),
+                    row.get("throughput").asDouble(), otherRow.get("throughput").asDouble(),
+                    row.get("p99").asDouble(), otherRow.get("p99").asDouble());
+        });
+    }
+
+
+    //checks the run against a saved results file, an endpoint regresses when its throughput
+    //drops or its p99 grows by more than the allowed percentage
+    public boolean matchesBaseline(Path baselineFile) throws IOException {
+        JsonNode baseline = objectMapper.readTree(baselineFile.toFile()).get("operations");
+        double allowed = settings.getMaxRegressionPercent() / 100.0;
+
+        boolean matches = true;
+        System.out.println();
+        for (Map.Entry<String, JsonNode> entry : iterable(results.get("operations"))) {
+            JsonNode baselineRow = baseline.get(entry.getKey());
+            if (baselineRow == null) continue;
+            JsonNode row = entry.getValue();
+
+            double throughput = row.get("throughput").asDouble();
+            double baselineThroughput = baselineRow.get("throughput").asDouble();
+            double p99 = row.get("p99").asDouble();
+            double baselineP99 = baselineRow.get("p99").asDouble();
+
+            if (throughput < baselineThroughput * (1 - allowed) || p99 > baselineP99 * (1 + allowed)) {
+                matches = false;
+                System.out.printf(Locale.ROOT, "REGRESSION %-40s req/s %.1f (baseline %.1f), p99 %.2f ms (baseline %.2f ms)%n",
+                        row.get("endpoint").asText(), throughput, baselineThroughput, p99, baselineP99);
+            }
+        }
+
+        System.out.println(matches
+                ? "No endpoint regressed more than " + settings.getMaxRegressionPercent() + "% against " + baselineFile
+                : "Regressions found against " + baselineFile);
+        return matches;
+    }
+
+
+    private Iterable<Map.Entry<String, JsonNode>> iterable(JsonNode node) {
+        return node::fields;
+    }
+
+    private ObjectNode toJson(String endpoint, Histogram histogram, long errors) {
+        ObjectNode row = objectMapper.createObjectNode();
+        row.put("endpoint", endpoint);
+        row.put("requests", histogram.getTotalCount());
+        row.put("errors", errors);
+        row.put("throughput", histogram.getTotalCount() / (double) settings.getDuration().toSeconds());
+        row.put("p50", millis(histogram.getValueAtPercentile(50)));
+        row.put("p95", millis(histogram.getValueAtPercentile(95)));
+        row.put("p99", millis(histogram.getValueAtPercentile(99)));
+        row.put("max", millis(histogram.getMaxValue()));
+        return row;
+    }
+
+    private double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private Path resultsFile(String mode) {
+        return settings.getResultsDir().resolve("results-" + mode + ".json");
+    }
+}
@@ -0,0 +1,59 @@
+package gr.example.blog.loadtest;
+
+import gr.example.blog.SpringbootBlogRestApiApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+//Starts the api on a random port over an in-memory database, or the one of -Ploadtest.jdbc-url,
+//seeds it and drives it with concurrent clients. Run it once per thread mode, gradle loadTest
+//and gradle loadTest -PvirtualThreads
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        Path indexDir = Files.createTempDirectory("blog-loadtest-index");
+
+        SpringApplication application = new SpringApplication(SpringbootBlogRestApiApplication.class);
+        application.setAdditionalProfiles(settings.isVirtualThreads()
+                ? new String[]{"loadtest", "virtual-threads"}
+                : new String[]{"loadtest"});
+
+        List<String> arguments = new ArrayList<>();
+        arguments.add("--app.search.index-dir=" + indexDir);
+        if (!settings.isEmbeddedDatabase()) {
+            arguments.add("--spring.datasource.url=" + settings.getJdbcUrl());
+            arguments.add("--spring.datasource.username=" + settings.getJdbcUsername());
+            arguments.add("--spring.datasource.password=" + settings.getJdbcPassword());
+            arguments.add("--spring.datasource.driver-class-name="
+                    + DatabaseDriver.fromJdbcUrl(settings.getJdbcUrl()).getDriverClassName());
+        }
+
+        boolean matchesBaseline = true;
+        try (ConfigurableApplicationContext context = application.run(arguments.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+            Seeder.SeedData seedData = new Seeder(context, settings.getRandomSeed()).seed(settings);
+            System.out.println("Seeded " + seedData.getPostIds().size() + " posts, running " + settings);
+
+            LatencyReport report = new Workload(settings, seedData, port).run();
+            report.print();
+            report.write();
+            report.compare();
+
+            if (settings.getBaseline() != null) {
+                matchesBaseline = report.matchesBaseline(settings.getBaseline());
+            }
+        }
+
+        if (!matchesBaseline) {
+            System.exit(1);
+        }
+    }
+}
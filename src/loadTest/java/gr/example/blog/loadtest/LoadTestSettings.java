@@ -0,0 +1,89 @@
+package gr.example.blog.loadtest;
+
+import lombok.Getter;
+import org.springframework.boot.jdbc.DatabaseDriver;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+//Parameters of a run, read from the -Ploadtest.* properties that the gradle task passes on.
+//The same settings and random seed give the same data and the same request sequence on every run
+@Getter
+public class LoadTestSettings {
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    private final String mode;
+    private final int clients;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int categories;
+    private final int posts;
+    private final int commentsPerPost;
+    private final int users;
+    private final long randomSeed;
+    private final Path resultsDir;
+
+    //results file of an earlier run, the run fails when an endpoint is slower by more than the allowed percentage
+    private final Path baseline;
+    private final int maxRegressionPercent;
+
+    //database to run against instead of the in-memory H2, the schema is dropped and created again.
+    //Only a real MySQL shows how Connector/J behaves under virtual threads
+    private final String jdbcUrl;
+    private final String jdbcUsername;
+    private final String jdbcPassword;
+
+    private LoadTestSettings() {
+        this.mode = System.getProperty("loadtest.mode", PLATFORM);
+        this.clients = intProperty("clients", 64);
+        this.warmup = Duration.ofSeconds(intProperty("warmup-seconds", 10));
+        this.duration = Duration.ofSeconds(intProperty("duration-seconds", 30));
+        this.categories = intProperty("categories", 10);
+        this.posts = intProperty("posts", 2000);
+        this.commentsPerPost = intProperty("comments-per-post", 5);
+        this.users = intProperty("users", 20);
+        this.randomSeed = Long.parseLong(System.getProperty("loadtest.seed", "42"));
+        this.resultsDir = Path.of(System.getProperty("loadtest.results-dir", "build/loadtest"));
+        String baselineFile = System.getProperty("loadtest.baseline");
+        this.baseline = baselineFile == null || baselineFile.isBlank() ? null : Path.of(baselineFile);
+        this.maxRegressionPercent = intProperty("max-regression-percent", 20);
+        String url = System.getProperty("loadtest.jdbc-url");
+        this.jdbcUrl = url == null || url.isBlank() ? null : url;
+        this.jdbcUsername = System.getProperty("loadtest.jdbc-username", "");
+        this.jdbcPassword = System.getProperty("loadtest.jdbc-password", "");
+    }
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings();
+    }
+
+    public boolean isVirtualThreads() {
+        return VIRTUAL.equals(mode);
+    }
+
+    public String getOtherMode() {
+        return isVirtualThreads() ? PLATFORM : VIRTUAL;
+    }
+
+    public boolean isEmbeddedDatabase() {
+        return jdbcUrl == null;
+    }
+
+    public String getDatabase() {
+        return isEmbeddedDatabase() ? "h2" : DatabaseDriver.fromJdbcUrl(jdbcUrl).getId();
+    }
+
+    @Override
+    public String toString() {
+        return "mode=" + mode + ", database=" + getDatabase() + ", clients=" + clients + ", warmup=" + warmup.toSeconds() + "s"
+                + ", duration=" + duration.toSeconds() + "s, categories=" + categories + ", posts=" + posts
+                + ", comments-per-post=" + commentsPerPost + ", users=" + users + ", seed=" + randomSeed;
+    }
+
+
+    private static int intProperty(String name, int defaultValue) {
+        return Integer.parseInt(System.getProperty("loadtest." + name, String.valueOf(defaultValue)));
+    }
+}
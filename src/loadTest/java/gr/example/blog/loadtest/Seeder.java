@@ -0,0 +1,151 @@
+package gr.example.blog.loadtest;
+
+import gr.example.blog.dto.BulkImportResponse;
+import gr.example.blog.dto.BulkItemResult;
+import gr.example.blog.dto.CategoryDto;
+import gr.example.blog.dto.CommentImportDto;
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.dto.RegisterDto;
+import gr.example.blog.model.Role;
+import gr.example.blog.repository.RoleRepository;
+import gr.example.blog.service.AuthService;
+import gr.example.blog.service.CategoryService;
+import gr.example.blog.service.CommentService;
+import gr.example.blog.service.PostService;
+import gr.example.blog.service.util.AppConstants;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//Fills the embedded database through the same services the api uses, the bulk imports
+//write posts and comments in batches so seeding takes seconds even for large data sets
+public class Seeder {
+
+    public static final String PASSWORD = "load-test-password";
+
+    private final ApplicationContext context;
+
+    private final Random random;
+
+    public Seeder(ApplicationContext context, long randomSeed) {
+        this.context = context;
+        this.random = new Random(randomSeed);
+    }
+
+    public SeedData seed(LoadTestSettings settings) {
+        seedRoles();
+        List<String> usernames = seedUsers(settings.getUsers());
+        List<Long> categoryIds = seedCategories(settings.getCategories());
+        List<Long> postIds = seedPosts(settings.getPosts(), categoryIds);
+        seedComments(postIds, settings.getCommentsPerPost());
+
+        return new SeedData(categoryIds, postIds, usernames);
+    }
+
+
+    private void seedRoles() {
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        for (String name : List.of("ROLE_USER", "ROLE_ADMIN")) {
+            if (roleRepository.findByName(name).isEmpty()) {
+                Role role = new Role();
+                role.setName(name);
+                roleRepository.save(role);
+            }
+        }
+    }
+
+    private List<String> seedUsers(int count) {
+        AuthService authService = context.getBean(AuthService.class);
+
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String username = "loaduser" + i;
+            authService.register(new RegisterDto("Load User " + i, username, username + "@example.com", PASSWORD));
+            usernames.add(username);
+        }
+        return usernames;
+    }
+
+    private List<Long> seedCategories(int count) {
+        CategoryService categoryService = context.getBean(CategoryService.class);
+
+        List<Long> categoryIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            categoryIds.add(categoryService.addCategory(
+                    new CategoryDto(null, "Category " + i, "Posts of category " + i)).getId());
+        }
+        return categoryIds;
+    }
+
+    private List<Long> seedPosts(int count, List<Long> categoryIds) {
+        PostService postService = context.getBean(PostService.class);
+
+        List<Long> postIds = new ArrayList<>();
+        for (int from = 0; from < count; from += AppConstants.MAX_BULK_SIZE) {
+            List<PostDto> postDtos = new ArrayList<>();
+            for (int i = from; i < Math.min(from + AppConstants.MAX_BULK_SIZE, count); i++) {
+                PostDto postDto = new PostDto();
+                postDto.setTitle("Load test post " + i);
+                postDto.setDescription("Description of load test post " + i);
+                postDto.setContent(text(200 + random.nextInt(4000)));
+                postDto.setCategoryId(categoryIds.get(random.nextInt(categoryIds.size())));
+                postDtos.add(postDto);
+            }
+            postIds.addAll(createdIds(postService.createPosts(postDtos)));
+        }
+        return postIds;
+    }
+
+    private void seedComments(List<Long> postIds, int commentsPerPost) {
+        CommentService commentService = context.getBean(CommentService.class);
+
+        List<CommentImportDto> commentDtos = new ArrayList<>();
+        for (Long postId : postIds) {
+            for (int i = 0; i < commentsPerPost; i++) {
+                CommentImportDto commentDto = new CommentImportDto();
+                commentDto.setPostId(postId);
+                commentDto.setName("Reader " + i);
+                commentDto.setEmail("reader" + i + "@example.com");
+                commentDto.setBody(text(20 + random.nextInt(400)));
+                commentDtos.add(commentDto);
+
+                if (commentDtos.size() == AppConstants.MAX_BULK_SIZE) {
+                    createdIds(commentService.createComments(commentDtos));
+                    commentDtos = new ArrayList<>();
+                }
+            }
+        }
+        if (!commentDtos.isEmpty()) {
+            createdIds(commentService.createComments(commentDtos));
+        }
+    }
+
+    private List<Long> createdIds(BulkImportResponse response) {
+        if (response.getFailed() > 0) {
+            throw new IllegalStateException(response.getFailed() + " items could not be seeded");
+        }
+        return response.getResults().stream().map(BulkItemResult::getId).toList();
+    }
+
+    private String text(int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append("lorem ipsum dolor sit amet ".charAt(random.nextInt(27)));
+        }
+        return text.toString();
+    }
+
+
+    @Getter
+    @AllArgsConstructor
+    public static class SeedData {
+
+        private final List<Long> categoryIds;
+        private final List<Long> postIds;
+        private final List<String> usernames;
+    }
+}
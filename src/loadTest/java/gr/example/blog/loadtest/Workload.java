@@ -0,0 +1,247 @@
+package gr.example.blog.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+//Closed loop clients, each one sends its next request as soon as the previous one is answered.
+//Latencies are recorded only after the warmup, so class loading and jit compilation are left out
+public class Workload {
+
+    //highest latency the histograms track, slower requests are clamped to it
+    private static final long MAX_LATENCY_MICROS = 60_000_000L;
+
+    //the mix of a blog audience, mostly anonymous readers with a few writers, weights add up to 100
+    public enum Operation {
+
+        GET_POST("GET /api/posts/{postId}", 50, 200),
+        LIST_POSTS("GET /api/posts?page", 12, 200),
+        LIST_CATEGORY_POSTS("GET /api/categories/{categoryId}/posts", 12, 200),
+        GET_COMMENTS("GET /api/posts/{postId}/comments", 12, 200),
+        ADD_COMMENT("POST /api/posts/{postId}/comments", 12, 201),
+        LOGIN("POST /api/login", 2, 200);
+
+        private final String endpoint;
+        private final int weight;
+        private final int expectedStatus;
+
+        Operation(String endpoint, int weight, int expectedStatus) {
+            this.endpoint = endpoint;
+            this.weight = weight;
+            this.expectedStatus = expectedStatus;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+    }
+
+    //listings are read a few pages deep, like readers who page on from the first page
+    private static final int MAX_LISTING_DEPTH = 5;
+    private static final int LISTING_PAGE_SIZE = 10;
+
+    private final LoadTestSettings settings;
+    private final Seeder.SeedData seedData;
+    private final String baseUrl;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Operation, List<Histogram>> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    public Workload(LoadTestSettings settings, Seeder.SeedData seedData, int port) {
+        this.settings = settings;
+        this.seedData = seedData;
+        this.baseUrl = "http://localhost:" + port + "/api";
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ArrayList<>());
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public LatencyReport run() throws InterruptedException {
+        long warmupEnd = System.nanoTime() + settings.getWarmup().toNanos();
+        long end = warmupEnd + settings.getDuration().toNanos();
+
+        CountDownLatch done = new CountDownLatch(settings.getClients());
+        for (int i = 0; i < settings.getClients(); i++) {
+            Client client = new Client(i, new Random(settings.getRandomSeed() + i));
+            Thread thread = new Thread(() -> {
+                try {
+                    client.run(warmupEnd, end);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        return new LatencyReport(settings, histograms, errors);
+    }
+
+
+    private class Client {
+
+        private final Random random;
+        private final String username;
+        private final Map<Operation, Histogram> clientHistograms = new EnumMap<>(Operation.class);
+
+        private String accessToken;
+
+        //cursor of the category listing the client is paging through, null starts a new one
+        private Long listingCategoryId;
+        private String listingCursor;
+        private int listingDepth;
+
+        private Client(int index, Random random) {
+            this.random = random;
+            this.username = seedData.getUsernames().get(index % seedData.getUsernames().size());
+
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = new Histogram(MAX_LATENCY_MICROS, 3);
+                clientHistograms.put(operation, histogram);
+                synchronized (histograms) {
+                    histograms.get(operation).add(histogram);
+                }
+            }
+        }
+
+        private void run(long warmupEnd, long end) {
+            try {
+                accessToken = login();
+            } catch (IOException | InterruptedException ex) {
+                throw new IllegalStateException("Client " + username + " could not log in", ex);
+            }
+
+            while (System.nanoTime() < end) {
+                Operation operation = nextOperation();
+                HttpRequest request = request(operation);
+
+                long start = System.nanoTime();
+                int status;
+                try {
+                    if (operation == Operation.LIST_CATEGORY_POSTS) {
+                        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                        status = response.statusCode();
+                        nextListingPage(response);
+                    } else {
+                        status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    }
+                } catch (IOException ex) {
+                    status = -1;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long latencyMicros = (System.nanoTime() - start) / 1000;
+
+                if (start >= warmupEnd) {
+                    clientHistograms.get(operation).recordValue(Math.min(latencyMicros, MAX_LATENCY_MICROS));
+                    if (status != operation.expectedStatus) {
+                        errors.get(operation).increment();
+                    }
+                }
+            }
+        }
+
+        private String login() throws IOException, InterruptedException {
+            HttpResponse<String> response = httpClient.send(post("/login", loginBody()).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Login returned " + response.statusCode());
+            }
+
+            JsonNode json = objectMapper.readTree(response.body());
+            return json.get("accessToken").asText();
+        }
+
+        private Operation nextOperation() {
+            int roll = random.nextInt(100);
+            for (Operation operation : Operation.values()) {
+                roll -= operation.weight;
+                if (roll < 0) return operation;
+            }
+            return Operation.GET_POST;
+        }
+
+        private HttpRequest request(Operation operation) {
+            List<Long> postIds = seedData.getPostIds();
+            Long postId = postIds.get(random.nextInt(postIds.size()));
+
+            return switch (operation) {
+                case GET_POST -> get("/posts/" + postId);
+                case LIST_POSTS -> get("/posts?page=" + random.nextInt(MAX_LISTING_DEPTH)
+                        + "&size=" + LISTING_PAGE_SIZE);
+                case LIST_CATEGORY_POSTS -> get(categoryListingPath());
+                case GET_COMMENTS -> get("/posts/" + postId + "/comments");
+                case ADD_COMMENT -> post("/posts/" + postId + "/comments", comment())
+                        .header("Authorization", "Bearer " + accessToken)
+                        .build();
+                case LOGIN -> post("/login", loginBody()).build();
+            };
+        }
+
+        private String categoryListingPath() {
+            if (listingCursor == null) {
+                List<Long> categoryIds = seedData.getCategoryIds();
+                listingCategoryId = categoryIds.get(random.nextInt(categoryIds.size()));
+                listingDepth = 0;
+                return "/categories/" + listingCategoryId + "/posts?size=" + LISTING_PAGE_SIZE;
+            }
+            return "/categories/" + listingCategoryId + "/posts?size=" + LISTING_PAGE_SIZE
+                    + "&cursor=" + URLEncoder.encode(listingCursor, StandardCharsets.UTF_8);
+        }
+
+        private void nextListingPage(HttpResponse<String> response) throws IOException {
+            listingCursor = null;
+            if (response.statusCode() != 200 || ++listingDepth >= MAX_LISTING_DEPTH) return;
+
+            JsonNode nextCursor = objectMapper.readTree(response.body()).get("nextCursor");
+            if (nextCursor != null && !nextCursor.isNull()) {
+                listingCursor = nextCursor.asText();
+            }
+        }
+
+        private String loginBody() {
+            try {
+                return objectMapper.writeValueAsString(Map.of("usernameOrEmail", username, "password", Seeder.PASSWORD));
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private String comment() {
+            return "{\"name\":\"" + username + "\",\"email\":\"" + username + "@example.com\","
+                    + "\"body\":\"Load test comment " + random.nextInt(1_000_000) + "\"}";
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        }
+
+        private HttpRequest.Builder post(String path, String body) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package gr.example.blog.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import gr.example.blog.datasource.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+//The primary pool is configured with the usual spring.datasource properties. Every replica listed under
+//app.datasource.replicas gets a pool of its own with the same spring.datasource.hikari settings, and
+//read only transactions are spread over them. Without replicas the primary pool is used as it is
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        Binder binder = Binder.get(environment);
+
+        HikariDataSource primary = pool("primary", properties, binder);
+
+        List<DataSourceProperties> replicaProperties = binder
+                .bind("app.datasource.replicas", Bindable.listOf(DataSourceProperties.class))
+                .orElse(List.of());
+        if (replicaProperties.isEmpty()) {
+            return primary;
+        }
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            DataSourceProperties replica = replicaProperties.get(i);
+            //replicas usually share the credentials and the driver of the primary
+            if (replica.getUsername() == null) replica.setUsername(properties.getUsername());
+            if (replica.getPassword() == null) replica.setPassword(properties.getPassword());
+            if (replica.getDriverClassName() == null) replica.setDriverClassName(properties.getDriverClassName());
+
+            HikariDataSource pool = pool("replica-" + (i + 1), replica, binder);
+            pool.setReadOnly(true);
+            replicas.add(pool);
+        }
+
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replicas));
+    }
+
+    //a single primary pool is a plain Hikari bean and Spring Boot binds its metrics,
+    //the pools behind the routing data source are bound here
+    @Bean
+    MeterBinder routingDataSourceMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof LazyConnectionDataSourceProxy proxy
+                    && proxy.getTargetDataSource() instanceof ReadWriteRoutingDataSource routing) {
+                routing.bindTo(registry);
+            }
+        };
+    }
+
+
+    private HikariDataSource pool(String name, DataSourceProperties properties, Binder binder) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+}
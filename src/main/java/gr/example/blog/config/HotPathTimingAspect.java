@@ -0,0 +1,97 @@
+package gr.example.blog.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Times the layers a request goes through, so a slow endpoint can be split into token checks,
+//user loading, service work and mapping. Each call is recorded in blog.hot_path, tagged with
+//its layer, class and method. Calls a bean makes to itself are not proxied and not timed.
+//Mappers are timed where the services and controllers call them, the mappers they use in turn
+//(a post mapping each of its comments) are part of that call and are not timed on their own
+@Aspect
+@Component
+public class HotPathTimingAspect {
+
+    private static final String METRIC = "blog.hot_path";
+
+    private static final ThreadLocal<Boolean> MAPPING = new NamedThreadLocal<>("Mapper call in progress");
+
+    private final MeterRegistry meterRegistry;
+
+    //timers per layer, outcome and method, looking a timer up in the registry on every call is not free
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HotPathTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(* gr.example.blog.security.JwtTokenProvider.generateToken(..))" +
+            " || execution(* gr.example.blog.security.JwtTokenProvider.getClaims(..))" +
+            " || execution(* gr.example.blog.security.JwtTokenProvider.validateToken(..))")
+    public Object timeJwt(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("jwt", joinPoint);
+    }
+
+    @Around("execution(* gr.example.blog.security.CustomUserDetailsService.loadUserByUsername(..))")
+    public Object timeUserDetails(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("user-details", joinPoint);
+    }
+
+    @Around("execution(public * gr.example.blog.service.impl.*ServiceImpl.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time("service", joinPoint);
+    }
+
+    @Around("execution(public * gr.example.blog.mapper.*Mapper+.*(..))")
+    public Object timeMapper(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (MAPPING.get() != null) {
+            return joinPoint.proceed();
+        }
+        MAPPING.set(Boolean.TRUE);
+        try {
+            return time("mapper", joinPoint);
+        } finally {
+            MAPPING.remove();
+        }
+    }
+
+
+    private Object time(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            outcome = "error";
+            throw ex;
+        } finally {
+            sample.stop(timer(layer, joinPoint.getSignature(), outcome));
+        }
+    }
+
+    private Timer timer(String layer, Signature signature, String outcome) {
+        String key = layer + " " + outcome + " " + signature.toLongString();
+        Timer timer = timers.get(key);
+        if (timer != null) {
+            return timer;
+        }
+
+        return timers.computeIfAbsent(key, k -> Timer.builder(METRIC)
+                .tag("layer", layer)
+                .tag("class", signature.getDeclaringType().getSimpleName())
+                .tag("method", signature.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,82 @@
+package gr.example.blog.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//Posts and comments took their ids from identity columns before they moved to pooled sequences.
+//On an existing database the sequences (a table of one row each on MySQL) start at 1, so the first
+//inserts would reuse ids that are taken. At startup, before the web server takes requests, every
+//sequence is moved past the largest id of its table. A sequence is never moved back
+@Component
+public class IdSequenceInitializer implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    //must match the @SequenceGenerator of the entities
+    static final List<IdSequence> SEQUENCES = List.of(
+            new IdSequence("post_seq", "posts", 50),
+            new IdSequence("comment_seq", "comments", 50));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Dialect dialect;
+
+    @Autowired
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this(jdbcTemplate, entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+    }
+
+    IdSequenceInitializer(JdbcTemplate jdbcTemplate, Dialect dialect) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        SEQUENCES.forEach(this::initialize);
+    }
+
+
+    //The pooled optimizer hands out the allocation size of ids up to the value it reads,
+    //so a value of max(id) + allocation size makes the first block start right after max(id)
+    private void initialize(IdSequence sequence) {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from " + sequence.table(), Long.class);
+        if (maxId == null) {
+            return;
+        }
+        long floor = maxId + sequence.allocationSize();
+
+        SequenceSupport sequenceSupport = dialect.getSequenceSupport();
+        if (sequenceSupport.supportsSequences()) {
+            //reading the value uses up one block of ids, that is all it costs
+            Long next = jdbcTemplate.queryForObject(sequenceSupport.getSequenceNextValString(sequence.name()),
+                    Long.class);
+            if (next != null && next < floor) {
+                jdbcTemplate.execute("alter sequence " + sequence.name() + " restart with " + floor);
+                logger.info("Moved sequence {} to {}, past the ids of {}", sequence.name(), floor, sequence.table());
+            }
+        } else {
+            //the guard keeps concurrent startups and sequences that are ahead already untouched
+            int updated = jdbcTemplate.update("update " + sequence.name() + " set next_val = ? where next_val < ?",
+                    floor, floor);
+            if (updated > 0) {
+                logger.info("Moved sequence table {} to {}, past the ids of {}", sequence.name(), floor,
+                        sequence.table());
+            }
+        }
+    }
+
+
+    record IdSequence(String name, String table, int allocationSize) {
+    }
+}
@@ -0,0 +1,29 @@
+package gr.example.blog.config;
+
+import gr.example.blog.rest.PostResponseCache;
+import gr.example.blog.security.CustomUserDetailsService;
+import gr.example.blog.security.JwtTokenProvider;
+import gr.example.blog.security.UserAuthVersions;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+//Hibernate statistics, the connection pool and the http server requests are bound by Spring Boot,
+//the in-process caches are created by hand so their metrics are bound here
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    MeterBinder caffeineCacheMetrics(PostResponseCache postResponseCache,
+                                     CustomUserDetailsService userDetailsService,
+                                     JwtTokenProvider jwtTokenProvider,
+                                     UserAuthVersions userAuthVersions) {
+        return registry -> {
+            CaffeineCacheMetrics.monitor(registry, postResponseCache.getCache(), "post-responses");
+            CaffeineCacheMetrics.monitor(registry, userDetailsService.getCache(), "user-details");
+            CaffeineCacheMetrics.monitor(registry, jwtTokenProvider.getVerifiedTokens(), "verified-tokens");
+            CaffeineCacheMetrics.monitor(registry, userAuthVersions.getVersions(), "auth-versions");
+        };
+    }
+}
@@ -1,10 +1,14 @@
 package gr.example.blog.config;
 
+import gr.example.blog.security.BoundedPasswordEncoder;
 import gr.example.blog.security.JwtAuthEntryPoint;
 import gr.example.blog.security.JwtAuthenticationFilter;
+import gr.example.blog.security.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -18,6 +22,9 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 @Configuration
 @EnableMethodSecurity
@@ -36,16 +43,27 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter authenticationFilter;
 
+    private final RateLimitFilter rateLimitFilter;
+
     @Autowired
-    public SecurityConfig(UserDetailsService userDetailsService, JwtAuthEntryPoint authEntryPoint, JwtAuthenticationFilter authenticationFilter) {
+    public SecurityConfig(UserDetailsService userDetailsService, JwtAuthEntryPoint authEntryPoint, JwtAuthenticationFilter authenticationFilter,
+                          RateLimitFilter rateLimitFilter) {
         this.userDetailsService = userDetailsService;
         this.authEntryPoint = authEntryPoint;
         this.authenticationFilter = authenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
+    //hashes stored with a lower strength are rehashed on the next successful login,
+    //see CustomUserDetailsService.updatePassword
     @Bean
-    PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(@Value("${app.bcrypt.strength}") int strength,
+                                    @Value("${app.bcrypt.pool-size}") int poolSize,
+                                    @Value("${app.bcrypt.queue-capacity}") int queueCapacity,
+                                    @Value("${app.bcrypt.retry-after-seconds}") long retryAfterSeconds,
+                                    MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), poolSize, queueCapacity,
+                retryAfterSeconds, meterRegistry);
     }
 
     @Bean
@@ -55,7 +73,10 @@ public class SecurityConfig {
 
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           @Value("${server.port:8080}") int serverPort,
+                                           @Value("${management.server.port:-1}") int managementPort)
+            throws Exception {
 
         http.cors().and().csrf().disable()
                 .authorizeHttpRequests()
@@ -71,6 +92,12 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/api/posts").hasRole("ADMIN")
                 .and()
                 .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.POST, "/api/posts/bulk").hasRole("ADMIN")
+                .and()
+                .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.POST, "/api/comments/bulk").hasRole("ADMIN")
+                .and()
+                .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.PUT,"/api/posts/{postId}").hasRole("ADMIN")
                 .and()
                 .authorizeHttpRequests()
@@ -92,6 +119,9 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.DELETE,"/api/posts/{postId}/comments/{commentId}").authenticated()
                 .and()
                 .authorizeHttpRequests()
+                .requestMatchers(HttpMethod.GET,"/api/export/**").hasRole("ADMIN")
+                .and()
+                .authorizeHttpRequests()
                 .requestMatchers(HttpMethod.GET,"/api/**").permitAll()
                 .and()
                 .authorizeHttpRequests()
@@ -100,13 +130,32 @@ public class SecurityConfig {
                 .authorizeHttpRequests()
                 .requestMatchers("/v3/api-docs/**").permitAll()
                 .and()
+                .authorizeHttpRequests()
+                .requestMatchers("/actuator/health").permitAll()
+                .and()
+                .authorizeHttpRequests()
+                .requestMatchers(prometheusOnManagementPort(serverPort, managementPort)).permitAll()
+                .and()
+                .authorizeHttpRequests()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
+                .and()
                 .httpBasic()
                 .and()
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(authEntryPoint))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
 
         http.addFilterBefore(authenticationFilter, UsernamePasswordAuthenticationFilter.class);
+        http.addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class);
         return http.build();
     }
 
+    //The chain guards the management server too. Scrapes need no credentials only when they come in
+    //on a management port of its own, which listens on the loopback address. With the port unset the
+    //endpoint is served next to the api, there and on a random port it takes an admin like the rest
+    private RequestMatcher prometheusOnManagementPort(int serverPort, int managementPort) {
+        boolean ownPort = managementPort > 0 && managementPort != serverPort;
+        return new AndRequestMatcher(new AntPathRequestMatcher("/actuator/prometheus"),
+                request -> ownPort && request.getLocalPort() == managementPort);
+    }
+
 }
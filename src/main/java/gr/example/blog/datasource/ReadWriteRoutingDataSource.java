@@ -0,0 +1,90 @@
+package gr.example.blog.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Sends read only transactions to the replicas in turn and everything else to the primary.
+//The target is picked when a connection is first used, so it has to sit behind a
+//LazyConnectionDataSourceProxy, by then the transaction has published its read only flag
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    private final Map<String, DataSource> targets = new HashMap<>();
+
+    //filled once the meter registry is up, connections handed out before that are not counted
+    private final Map<String, Counter> routed = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + (i + 1);
+            targets.put(key, replicas.get(i));
+            replicaKeys.add(key);
+        }
+
+        setTargetDataSources(new HashMap<>(targets));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    //hikaricp.connections metrics are tagged with the pool name, so every target is tracked on its own
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        targets.forEach((key, target) -> {
+            routed.put(key, Counter.builder("datasource.routing")
+                    .tag("target", key)
+                    .description("Connections handed out per database")
+                    .register(registry));
+
+            if (target instanceof HikariDataSource pool && pool.getMetricsTrackerFactory() == null
+                    && pool.getMetricRegistry() == null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        });
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = lookupKey();
+        Counter counter = routed.get(key);
+        if (counter != null) {
+            counter.increment();
+        }
+        return key;
+    }
+
+
+    private String lookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+
+        if (!readOnly) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWrites.recordWrite();
+            }
+            return PRIMARY;
+        }
+
+        //a client that has just written reads its own writes from the primary, the replicas may lag behind
+        if (replicaKeys.isEmpty() || ReadYourWrites.isPinnedToPrimary()) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+}
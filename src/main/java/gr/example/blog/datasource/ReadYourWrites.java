@@ -0,0 +1,98 @@
+package gr.example.blog.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+//Remembers the clients that wrote in the last few seconds, their reads go to the primary until
+//the replicas have caught up. The state of the current request is kept per thread, it is set up
+//by ReadYourWritesFilter and read by ReadWriteRoutingDataSource
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<RequestState> CURRENT = new ThreadLocal<>();
+
+    //open primary scopes of the current thread, they may nest
+    private static final ThreadLocal<Integer> PRIMARY_SCOPES = ThreadLocal.withInitial(() -> 0);
+
+    private final Cache<String, Boolean> recentWriters;
+
+    @Autowired
+    public ReadYourWrites(@Value("${app.datasource.read-your-writes-seconds}") long stickySeconds,
+                          @Value("${app.datasource.read-your-writes-max-clients}") long maxClients) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterWrite(Duration.ofSeconds(stickySeconds))
+                .build();
+    }
+
+    public boolean isRecentWriter(String clientKey) {
+        return recentWriters.getIfPresent(clientKey) != null;
+    }
+
+    public void recordWriter(String clientKey) {
+        recentWriters.put(clientKey, Boolean.TRUE);
+    }
+
+    public static void begin(boolean pinnedToPrimary) {
+        CURRENT.set(new RequestState(pinnedToPrimary));
+    }
+
+    //returns whether the request wrote to the primary
+    public static boolean end() {
+        RequestState state = CURRENT.get();
+        CURRENT.remove();
+        return state != null && state.wrote;
+    }
+
+    //reads after a write of the same request are pinned too
+    public static boolean isPinnedToPrimary() {
+        if (PRIMARY_SCOPES.get() > 0) {
+            return true;
+        }
+        RequestState state = CURRENT.get();
+        return state != null && (state.pinnedToPrimary || state.wrote);
+    }
+
+    //Reads started inside the scope go to the primary whoever the client is. Used by the loads
+    //that fill a cache, a row read from a lagging replica would be served until its next change
+    public static PrimaryScope pinToPrimary() {
+        PRIMARY_SCOPES.set(PRIMARY_SCOPES.get() + 1);
+        return () -> {
+            int open = PRIMARY_SCOPES.get() - 1;
+            if (open > 0) {
+                PRIMARY_SCOPES.set(open);
+            } else {
+                PRIMARY_SCOPES.remove();
+            }
+        };
+    }
+
+    public static void recordWrite() {
+        RequestState state = CURRENT.get();
+        if (state != null) {
+            state.wrote = true;
+        }
+    }
+
+
+    public interface PrimaryScope extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    private static class RequestState {
+
+        private final boolean pinnedToPrimary;
+        private boolean wrote;
+
+        private RequestState(boolean pinnedToPrimary) {
+            this.pinnedToPrimary = pinnedToPrimary;
+        }
+    }
+}
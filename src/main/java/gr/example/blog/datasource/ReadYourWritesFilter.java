@@ -0,0 +1,62 @@
+package gr.example.blog.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+//Marks the requests of users that wrote recently, so their reads are routed to the primary.
+//Writes need a token, so anonymous requests are neither pinned nor remembered. Runs after the
+//security filters, once the user of the request is known
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReadYourWrites readYourWrites;
+
+    @Autowired
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        String clientKey = clientKey();
+        if (clientKey == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ReadYourWrites.begin(readYourWrites.isRecentWriter(clientKey));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (ReadYourWrites.end()) {
+                readYourWrites.recordWriter(clientKey);
+            }
+        }
+    }
+
+
+    //the username, a user keeps it across tokens and devices
+    private String clientKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return "user:" + authentication.getName();
+    }
+}
@@ -0,0 +1,16 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkImportResponse {
+    private int created;
+    private int failed;
+    private List<BulkItemResult> results;
+}
@@ -0,0 +1,28 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkItemResult {
+
+    public static final String CREATED = "CREATED";
+    public static final String FAILED = "FAILED";
+
+    //position of the item in the request
+    private int index;
+    private Long id;
+    private String status;
+    private String message;
+
+    public static BulkItemResult created(int index, Long id) {
+        return new BulkItemResult(index, id, CREATED, null);
+    }
+
+    public static BulkItemResult failed(int index, String message) {
+        return new BulkItemResult(index, null, FAILED, message);
+    }
+}
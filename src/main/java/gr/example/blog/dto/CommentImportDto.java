@@ -0,0 +1,17 @@
+package gr.example.blog.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import jakarta.validation.constraints.NotNull;
+
+//Comment of a bulk import, it names the post it belongs to
+@Getter
+@Setter
+@NoArgsConstructor
+public class CommentImportDto extends CommentDto {
+
+    @NotNull(message = "Post ID cannot be null")
+    private Long postId;
+}
@@ -0,0 +1,16 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentResponse {
+    private List<CommentDto> content;
+    private int size;
+    private String nextCursor;
+}
@@ -0,0 +1,35 @@
+package gr.example.blog.dto;
+
+import gr.example.blog.service.exception.BlogAPIException;
+import org.springframework.http.HttpStatus;
+
+public enum ExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat of(String format) {
+        for (ExportFormat exportFormat : values()) {
+            if (exportFormat.extension.equalsIgnoreCase(format)) {
+                return exportFormat;
+            }
+        }
+        throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+    }
+}
@@ -0,0 +1,17 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostCursorResponse {
+    private List<PostSummaryDto> content;
+    private int size;
+    private String nextCursor;
+    private String prevCursor;
+}
@@ -23,4 +23,5 @@ public class PostDto {
     private String content;
     private Set<CommentDto> comments;
     private Long categoryId;
+    private Long commentCount;
 }
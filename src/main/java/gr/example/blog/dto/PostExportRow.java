@@ -0,0 +1,24 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//One row of the export stream, a post joined with one of its comments (comment fields are null without comments)
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostExportRow {
+
+    private Long postId;
+    private String title;
+    private String description;
+    private String content;
+    private Long categoryId;
+    private Long commentId;
+    private String commentName;
+    private String commentEmail;
+    private String commentBody;
+}
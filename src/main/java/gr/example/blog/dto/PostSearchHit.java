@@ -0,0 +1,19 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostSearchHit {
+
+    private Long id;
+    private String title;
+    private String description;
+    private Long categoryId;
+    private float score;
+}
@@ -0,0 +1,18 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostSearchResponse {
+    private List<PostSearchHit> content;
+    private int page;
+    private int size;
+    private Long totalElements;
+    private boolean last;
+}
@@ -0,0 +1,20 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+//Post fields shown in listings, read from the posts table alone without loading content or comments
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostSummaryDto {
+
+    private Long id;
+    private String title;
+    private String description;
+    private Long categoryId;
+    private Long commentCount;
+}
@@ -0,0 +1,33 @@
+package gr.example.blog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+//Version and modification time of a row, read on their own to answer conditional requests
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceVersion {
+
+    private Long version;
+    private Instant updatedAt;
+
+    //strong validator for one representation of the resource
+    public String toETag(String resource) {
+        return "\"" + resource + "-" + version + "\"";
+    }
+
+    //one of several representations at the same version, such as a page of a list
+    public String toETag(String resource, String variant) {
+        return "\"" + resource + "-" + version + "-" + variant + "\"";
+    }
+
+    public long getLastModifiedMillis() {
+        return updatedAt == null ? -1 : updatedAt.toEpochMilli();
+    }
+}
@@ -0,0 +1,15 @@
+package gr.example.blog.mapper;
+
+import gr.example.blog.dto.CategoryDto;
+import gr.example.blog.model.Category;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface CategoryMapper {
+
+    CategoryDto toDto(Category category);
+
+    @Mapping(target = "posts", ignore = true)
+    Category toEntity(CategoryDto categoryDto);
+}
@@ -0,0 +1,17 @@
+package gr.example.blog.mapper;
+
+import gr.example.blog.dto.CommentDto;
+import gr.example.blog.model.Comment;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface CommentMapper {
+
+    CommentDto toDto(Comment comment);
+
+    @Mapping(target = "post", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    Comment toEntity(CommentDto commentDto);
+}
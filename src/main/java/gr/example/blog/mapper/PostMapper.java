@@ -0,0 +1,21 @@
+package gr.example.blog.mapper;
+
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.model.Post;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring", uses = CommentMapper.class)
+public interface PostMapper {
+
+    @Mapping(target = "categoryId", source = "category.id")
+    PostDto toDto(Post post);
+
+    //comments, category and the comment count are resolved by the service, never taken from the request
+    @Mapping(target = "comments", ignore = true)
+    @Mapping(target = "commentCount", ignore = true)
+    @Mapping(target = "category", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    Post toEntity(PostDto postDto);
+}
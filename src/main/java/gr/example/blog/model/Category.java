@@ -1,6 +1,9 @@
 package gr.example.blog.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -15,6 +18,9 @@ import java.util.Set;
 @NoArgsConstructor
 @Entity
 @Table(name = "categories")
+//categories rarely change, they are read from the second level cache instead of the database
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Category {
 
     @Id
@@ -27,6 +33,7 @@ public class Category {
     private String description;
 
     //one to many bidirectional mapping, orphan removal - remove child entities without parent reference
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Post> posts;
 }
@@ -3,17 +3,25 @@ package gr.example.blog.model;
 import lombok.*;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 
 @Entity
-@Table(name = "comments")
+//comments are listed per post in id order, straight from this index
+@Table(name = "comments", indexes = @Index(name = "idx_comments_post_id_id", columnList = "post_id, id"))
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
 @Setter
 public class Comment {
 
+    //pooled sequence ids, unlike identity columns they let hibernate batch the inserts
+    //IdSequenceInitializer moves the sequence past the ids of existing rows at startup
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comment_seq")
+    @SequenceGenerator(name = "comment_seq", sequenceName = "comment_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
     @Column(name = "name")
@@ -23,6 +31,14 @@ public class Comment {
     @Column(name = "body")
     private String body;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     //Fetch type lazy, fetches the related entities from db when you use relationship
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "post_id", nullable = false)
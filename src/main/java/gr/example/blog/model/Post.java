@@ -3,6 +3,11 @@ package gr.example.blog.model;
 import lombok.*;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -11,14 +16,20 @@ import java.util.Set;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@NamedEntityGraph(name = "Post.comments", attributeNodes = @NamedAttributeNode("comments"))
 @Table(name = "posts",
         uniqueConstraints = {@UniqueConstraint(columnNames = {"title"}
-        )}
+        )},
+        indexes = {@Index(name = "idx_posts_category_id_id", columnList = "category_id, id"),
+                @Index(name = "idx_posts_category_id_title", columnList = "category_id, title")}
 )
 public class Post {
 
+    //pooled sequence ids, unlike identity columns they let hibernate batch the inserts
+    //IdSequenceInitializer moves the sequence past the ids of existing rows at startup
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "post_seq")
+    @SequenceGenerator(name = "post_seq", sequenceName = "post_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
     @Column(name = "title", nullable = false)
@@ -28,6 +39,23 @@ public class Post {
     @Column(name = "content", nullable = false)
     private String content;
 
+    //kept by single statement increments of the comment service, never written from the entity
+    @ColumnDefault("0")
+    @Column(name = "comment_count", nullable = false, updatable = false)
+    private Long commentCount = 0L;
+
+    //bumped on every change of the post or of its comments, it drives the etag of the post.
+    //It is not a @Version, comment writes raise it too and must not fail a concurrent post update.
+    //Only single statement increments write it, never the entity
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false, updatable = false)
+    private Long version = 0L;
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    //comments of several posts are initialized together instead of one query per post
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Comment> comments = new HashSet<>();
 
@@ -5,7 +5,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import gr.example.blog.security.UserCacheEvictionListener;
 import jakarta.persistence.*;
+import java.util.Objects;
 import java.util.Set;
 
 @Getter
@@ -14,6 +16,7 @@ import java.util.Set;
 @AllArgsConstructor
 @Entity
 @Table(name = "users")
+@EntityListeners(UserCacheEvictionListener.class)
 public class User {
 
     @Id
@@ -29,10 +32,40 @@ public class User {
     @Column(name = "password")
     private String password;
 
+    //stamp embedded in issued tokens, it is increased by setPassword and setRoles
+    //so that tokens issued before the change stop being accepted
+    @Column(name = "auth_version")
+    private Long authVersion = 0L;
+
     //Whenever we retrieve a user entity we also retrieve his roles with FetchType.EAGER
     //When a user performs operations these operations must also be performed by roles
     @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
     @JoinTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
     inverseJoinColumns = @JoinColumn(name = "role_id", referencedColumnName = "id"))
     private Set<Role> roles;
+
+    //hibernate reads and writes the fields, only changes made by the application go through here
+    public void setPassword(String password) {
+        if (this.password != null && !Objects.equals(this.password, password)) {
+            bumpAuthVersion();
+        }
+        this.password = password;
+    }
+
+    //the roles are replaced as a whole, changing the returned set in place would not revoke the tokens
+    public void setRoles(Set<Role> roles) {
+        if (this.roles != null && !Objects.equals(this.roles, roles)) {
+            bumpAuthVersion();
+        }
+        this.roles = roles;
+    }
+
+    //the same password hashed again with other settings, tokens issued so far stay valid
+    public void rehashPassword(String password) {
+        this.password = password;
+    }
+
+    private void bumpAuthVersion() {
+        authVersion = (authVersion == null ? 0L : authVersion) + 1;
+    }
 }
@@ -1,9 +1,26 @@
 package gr.example.blog.repository;
 
 import gr.example.blog.model.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    //the result is cached and dropped by hibernate whenever the categories table changes
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Category> findAll();
+
+    @Query("select c.id from Category c where c.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
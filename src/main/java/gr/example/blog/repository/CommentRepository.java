@@ -1,13 +1,45 @@
 package gr.example.blog.repository;
 
+import gr.example.blog.dto.ResourceVersion;
 import gr.example.blog.model.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
     List<Comment> findByPostId(Long postId);
+
+    //keyset pagination over the (post_id, id) index, slices fetch one extra row instead of counting
+    Slice<Comment> findByPostIdOrderByIdAsc(Long postId, Pageable pageable);
+
+    Slice<Comment> findByPostIdAndIdGreaterThanOrderByIdAsc(Long postId, Long id, Pageable pageable);
+
+    @Query("select new gr.example.blog.dto.ResourceVersion(c.version, c.updatedAt) from Comment c" +
+            " where c.id = :id and c.post.id = :postId")
+    Optional<ResourceVersion> findVersionByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    //reads and writes of a single comment are scoped by its post, ownership is checked in the where clause
+
+    @Query("select c from Comment c where c.id = :id and c.post.id = :postId")
+    Optional<Comment> findByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
+
+    @Modifying
+    @Query("update Comment c set c.name = :name, c.email = :email, c.body = :body, c.version = c.version + 1," +
+            " c.updatedAt = :now where c.id = :id and c.post.id = :postId")
+    int updateByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId, @Param("name") String name,
+                            @Param("email") String email, @Param("body") String body, @Param("now") Instant now);
+
+    @Modifying
+    @Query("delete from Comment c where c.id = :id and c.post.id = :postId")
+    int deleteByIdAndPostId(@Param("id") Long id, @Param("postId") Long postId);
 }
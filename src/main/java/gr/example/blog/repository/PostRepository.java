@@ -1,13 +1,129 @@
 package gr.example.blog.repository;
 
+import gr.example.blog.dto.PostExportRow;
+import gr.example.blog.dto.PostSummaryDto;
+import gr.example.blog.dto.ResourceVersion;
 import gr.example.blog.model.Post;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long> {
 
-    List<Post> findPostByCategoryId(Long categoryId);
+    String SUMMARY_SELECT = "select new gr.example.blog.dto.PostSummaryDto(p.id, p.title, p.description, cat.id," +
+            " p.commentCount) from Post p left join p.category cat";
+
+    @Query("select p.id from Post p where p.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select p.title from Post p where p.title in :titles")
+    Set<String> findExistingTitles(@Param("titles") Collection<String> titles);
+
+    //conditional requests are answered from these two columns, without loading the post
+    @Query("select new gr.example.blog.dto.ResourceVersion(p.version, p.updatedAt) from Post p where p.id = :id")
+    Optional<ResourceVersion> findVersionById(@Param("id") Long id);
+
+    //a post is returned together with its comments, so a comment change is a new version of the post
+    @Modifying
+    @Query("update Post p set p.version = p.version + 1, p.updatedAt = :now where p.id in :ids")
+    int touch(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    //the count is changed in the row itself, concurrent comments cannot overwrite each other
+    @Modifying
+    @Query("update Post p set p.commentCount = p.commentCount + :delta, p.version = p.version + 1," +
+            " p.updatedAt = :now where p.id = :id")
+    int adjustCommentCount(@Param("id") Long id, @Param("delta") int delta, @Param("now") Instant now);
+
+    @Query("select p.id from Post p where p.commentCount <> (select count(c) from Comment c where c.post = p)")
+    List<Long> findIdsWithStaleCommentCount();
+
+    @Modifying
+    @Query("update Post p set p.commentCount = (select count(c) from Comment c where c.post = p)," +
+            " p.version = p.version + 1, p.updatedAt = :now where p.id in :ids")
+    int recountComments(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    //the exports walk the posts and their comments in (post id, comment id) order, a page of rows at a time.
+    //A post without comments is a single row without a comment id
+    @Query("select new gr.example.blog.dto.PostExportRow(p.id, p.title, p.description, p.content, cat.id," +
+            " c.id, c.name, c.email, c.body)" +
+            " from Post p left join p.category cat left join p.comments c" +
+            " where p.id > :postId or (p.id = :postId and c.id > :commentId) order by p.id, c.id")
+    List<PostExportRow> findExportRowsAfter(@Param("postId") Long postId, @Param("commentId") Long commentId,
+                                            Pageable pageable);
+
+    //forward only stream of whole posts, used to rebuild the search index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p from Post p left join fetch p.category")
+    Stream<Post> streamAllBy();
+
+    //single post reads return the comments too, so they are fetched in the same statement
+    @EntityGraph(value = "Post.comments")
+    Optional<Post> findWithCommentsById(Long id);
+
+    @Query(value = SUMMARY_SELECT, countQuery = "select count(p) from Post p")
+    Page<PostSummaryDto> findAllSummaries(Pageable pageable);
+
+    //keyset pagination, slices fetch one extra row instead of running a count query
+
+    @Query(SUMMARY_SELECT)
+    Slice<PostSummaryDto> findSummaries(Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.id > :id")
+    Slice<PostSummaryDto> findSummariesAfterId(@Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.id < :id")
+    Slice<PostSummaryDto> findSummariesBeforeId(@Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.title > :title or (p.title = :title and p.id > :id)")
+    Slice<PostSummaryDto> findSummariesAfterTitle(@Param("title") String title, @Param("id") Long id,
+                                                  Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.title < :title or (p.title = :title and p.id < :id)")
+    Slice<PostSummaryDto> findSummariesBeforeTitle(@Param("title") String title, @Param("id") Long id,
+                                                   Pageable pageable);
+
+    //ids only, for the deletion of a category
+    @Query("select p.id from Post p where p.category.id = :categoryId")
+    List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId);
+
+    //the same pages within one category, they seek on the (category_id, id) and (category_id, title) indexes
+    @Query(SUMMARY_SELECT + " where p.category.id = :categoryId")
+    Slice<PostSummaryDto> findSummariesByCategoryId(@Param("categoryId") Long categoryId, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.category.id = :categoryId and p.id > :id")
+    Slice<PostSummaryDto> findSummariesByCategoryIdAfterId(@Param("categoryId") Long categoryId,
+                                                           @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.category.id = :categoryId and p.id < :id")
+    Slice<PostSummaryDto> findSummariesByCategoryIdBeforeId(@Param("categoryId") Long categoryId,
+                                                            @Param("id") Long id, Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.category.id = :categoryId" +
+            " and (p.title > :title or (p.title = :title and p.id > :id))")
+    Slice<PostSummaryDto> findSummariesByCategoryIdAfterTitle(@Param("categoryId") Long categoryId,
+                                                              @Param("title") String title, @Param("id") Long id,
+                                                              Pageable pageable);
+
+    @Query(SUMMARY_SELECT + " where p.category.id = :categoryId" +
+            " and (p.title < :title or (p.title = :title and p.id < :id))")
+    Slice<PostSummaryDto> findSummariesByCategoryIdBeforeTitle(@Param("categoryId") Long categoryId,
+                                                               @Param("title") String title, @Param("id") Long id,
+                                                               Pageable pageable);
 }
@@ -2,6 +2,8 @@ package gr.example.blog.repository;
 
 import gr.example.blog.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -13,4 +15,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Boolean existsByUsername(String username);
     Boolean existsByEmail(String email);
+
+    @Query("select coalesce(u.authVersion, 0) from User u where u.email = :email")
+    Optional<Long> findAuthVersionByEmail(@Param("email") String email);
 }
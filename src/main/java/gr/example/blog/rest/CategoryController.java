@@ -2,6 +2,7 @@ package gr.example.blog.rest;
 
 import gr.example.blog.dto.CategoryDto;
 import gr.example.blog.dto.PostDto;
+import gr.example.blog.mapper.CategoryMapper;
 import gr.example.blog.model.Category;
 import gr.example.blog.service.CategoryService;
 import gr.example.blog.service.exception.ResourceNotFoundException;
@@ -12,7 +13,6 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,10 +28,10 @@ public class CategoryController {
 
     private final CategoryService categoryService;
 
-    private final ModelMapper mapper;
+    private final CategoryMapper mapper;
 
     @Autowired
-    public CategoryController(CategoryService categoryService, ModelMapper mapper) {
+    public CategoryController(CategoryService categoryService, CategoryMapper mapper) {
         this.categoryService = categoryService;
         this.mapper = mapper;
     }
@@ -55,7 +55,7 @@ public class CategoryController {
         }
 
         Category category = categoryService.addCategory(categoryDto);
-        CategoryDto addedDto = mapToDto(category);
+        CategoryDto addedDto = map(category);
 
         return new ResponseEntity<>(addedDto, HttpStatus.CREATED);
     }
@@ -74,7 +74,7 @@ public class CategoryController {
         try{
             Category category = categoryService.getCategoryById(categoryId);
 
-            CategoryDto categoryDto = mapToDto(category);
+            CategoryDto categoryDto = map(category);
 
             return new ResponseEntity<>(categoryDto, HttpStatus.OK);
         }catch (ResourceNotFoundException exc) {
@@ -95,7 +95,7 @@ public class CategoryController {
         List<CategoryDto> categoryDtoList = new ArrayList<>();
 
         for (Category category : categories) {
-            categoryDtoList.add(new CategoryDto(category.getId(), category.getName(), category.getDescription()));
+            categoryDtoList.add(map(category));
         }
 
         return new ResponseEntity<>(categoryDtoList, HttpStatus.OK);
@@ -156,16 +156,8 @@ public class CategoryController {
         }
     }
 
-    private CategoryDto mapToDto(Category category) {
-        CategoryDto categoryDto = new CategoryDto();
-        categoryDto.setName(category.getName());
-        categoryDto.setDescription(category.getDescription());
-        categoryDto.setId(category.getId());
-        return categoryDto;
-    }
-
     private CategoryDto map(Category category){
-        CategoryDto categoryDto = mapper.map(category, CategoryDto.class);
+        CategoryDto categoryDto = mapper.toDto(category);
 
         return categoryDto;
     }
@@ -1,10 +1,16 @@
 package gr.example.blog.rest;
 
+import gr.example.blog.dto.BulkImportResponse;
 import gr.example.blog.dto.CommentDto;
+import gr.example.blog.dto.CommentImportDto;
+import gr.example.blog.dto.CommentResponse;
+import gr.example.blog.dto.ResourceVersion;
+import gr.example.blog.mapper.CommentMapper;
 import gr.example.blog.model.Comment;
 import gr.example.blog.service.CommentService;
 import gr.example.blog.service.exception.BlogAPIException;
 import gr.example.blog.service.exception.ResourceNotFoundException;
+import gr.example.blog.service.util.AppConstants;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,26 +18,32 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api")
 public class CommentController {
 
+    //cursors are url safe base64, anything else is not a cursor and never goes into a header
+    private static final Pattern CURSOR = Pattern.compile("[A-Za-z0-9_-]+");
+
     private final CommentService commentService;
-    private final ModelMapper mapper;
+    private final CommentMapper mapper;
 
 
     @Autowired
-    public CommentController(CommentService commentService, ModelMapper mapper) {
+    public CommentController(CommentService commentService, CommentMapper mapper) {
         this.commentService = commentService;
         this.mapper = mapper;
     }
@@ -69,27 +81,64 @@ public class CommentController {
     }
 
 
-    @Operation(summary = "Get a all comments for a certain post")
+    @SecurityRequirement(
+            name = "Bear Authentication"
+    )
+    @Operation(
+            summary = "Import comments in bulk",
+            description = "Create up to 10000 comments across many posts in one request," +
+                    " the response reports the result of every item")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Comments imported",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BulkImportResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Too many comments were supplied",
+                    content = @Content)})
+    @RequestMapping(path = "/comments/bulk", method = RequestMethod.POST)
+    public ResponseEntity<BulkImportResponse> createComments(@RequestBody List<CommentImportDto> commentDtos) {
+
+        BulkImportResponse response = commentService.createComments(commentDtos);
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+
+    @Operation(
+            summary = "Get the comments of a certain post",
+            description = "Get a page of comments in id order, pass the next cursor of a page to get the following one")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Comments Found",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = CommentDto.class)) }),
+                            schema = @Schema(implementation = CommentResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor",
+                    content = @Content),
+            @ApiResponse(responseCode = "304", description = "Comments not modified since the given ETag or date",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Comments not found",
                     content = @Content)})
     @RequestMapping(path ="/posts/{postId}/comments" ,method = RequestMethod.GET)
-    public ResponseEntity<List<CommentDto>> getCommentsByPostId (@PathVariable("postId") Long postId) {
-        List<Comment>  comments = commentService.getCommentsByPostId(postId);
-        if (comments.size() == 0) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    public ResponseEntity<CommentResponse> getCommentsByPostId (
+            @PathVariable("postId") Long postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int size,
+            WebRequest webRequest) {
+        //every page has an etag of its own, an invalid cursor is left for the service to reject
+        boolean firstPage = !StringUtils.hasText(cursor);
+        Optional<ResourceVersion> version = commentService.getCommentsVersion(postId);
+        if (version.isPresent() && (firstPage || CURSOR.matcher(cursor).matches())
+                && webRequest.checkNotModified(version.get().toETag("post-" + postId + "-comments",
+                        (firstPage ? "first" : cursor) + "-" + size),
+                version.get().getLastModifiedMillis())) {
+            return null;
         }
 
-        List<CommentDto> commentDtos = new ArrayList<>();
-        for (Comment comment : comments) {
-            commentDtos.add(new CommentDto(comment.getId(),comment.getName(),
-                    comment.getEmail(),comment.getBody()));
-        }
+        try {
+            CommentResponse comments = commentService.getCommentsByPostId(postId, cursor, size);
 
-        return new ResponseEntity<>(commentDtos, HttpStatus.OK);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(comments);
+        }catch (ResourceNotFoundException ex){
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
     }
 
 
@@ -101,17 +150,27 @@ public class CommentController {
                             schema = @Schema(implementation = CommentDto.class)) }),
             @ApiResponse(responseCode = "400", description = "The requested comment does not belong to the selected post ",
                     content = @Content),
+            @ApiResponse(responseCode = "304", description = "Comment not modified since the given ETag or date",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Comment not found",
                     content = @Content) })
     @RequestMapping(path = "/posts/{postId}/comments/{commentId}",method = RequestMethod.GET)
     public ResponseEntity<CommentDto> getCommentById(@PathVariable("postId") Long postId,
-                                                     @PathVariable("commentId") Long commentId) {
+                                                     @PathVariable("commentId") Long commentId,
+                                                     WebRequest webRequest) {
+        //a comment of another post finds no version and takes the full path below, which reports the error
+        Optional<ResourceVersion> version = commentService.getCommentVersion(postId, commentId);
+        if (version.isPresent() && webRequest.checkNotModified(version.get().toETag("comment-" + commentId),
+                version.get().getLastModifiedMillis())) {
+            return null;
+        }
+
         try {
             Comment comment = commentService.getCommentById(postId, commentId);
 
             CommentDto commentDto = map(comment);
 
-            return new ResponseEntity<>(commentDto, HttpStatus.OK);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(commentDto);
         }catch (ResourceNotFoundException exception){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }catch (BlogAPIException blogAPIException) {
@@ -169,8 +228,7 @@ public class CommentController {
                                                     @PathVariable("commentId") Long commentId){
 
         try {
-            Comment comment = commentService.getCommentById(postId, commentId);
-            commentService.deleteComment(postId, commentId);
+            Comment comment = commentService.deleteComment(postId, commentId);
             CommentDto deletedDTO = map(comment);
 
             return new ResponseEntity<>(deletedDTO, HttpStatus.OK);
@@ -183,7 +241,7 @@ public class CommentController {
     }
 
     private CommentDto map(Comment comment) {
-        CommentDto commentDto = mapper.map(comment, CommentDto.class);
+        CommentDto commentDto = mapper.toDto(comment);
 
         return commentDto;
     }
@@ -0,0 +1,67 @@
+package gr.example.blog.rest;
+
+import gr.example.blog.dto.ExportFormat;
+import gr.example.blog.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+@RestController
+@RequestMapping("/api")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    private final long timeoutMillis;
+
+    @Autowired
+    public ExportController(ExportService exportService,
+                            @Value("${app.export.timeout-millis}") long timeoutMillis) {
+        this.exportService = exportService;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @SecurityRequirement(
+            name = "Bear Authentication"
+    )
+    @Operation(
+            summary = "Export all posts and their comments",
+            description = "Stream every post followed by its comments as ndjson (default) or csv")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Export started",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "Unsupported export format",
+                    content = @Content)})
+    @RequestMapping(value = "/export/posts", method = RequestMethod.GET)
+    public WebAsyncTask<Void> exportPosts(
+            @RequestParam(value = "format", defaultValue = "ndjson", required = false) String format,
+            HttpServletResponse response) {
+
+        ExportFormat exportFormat = ExportFormat.of(format);
+
+        response.setContentType(exportFormat.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("posts." + exportFormat.getExtension())
+                .build()
+                .toString());
+
+        //the export streams for as long as the data takes, it has a timeout of its own
+        //instead of the async timeout of every other request
+        return new WebAsyncTask<>(timeoutMillis, () -> {
+            exportService.exportPosts(response.getOutputStream(), exportFormat);
+            return null;
+        });
+    }
+}
@@ -1,7 +1,11 @@
 package gr.example.blog.rest;
 
+import gr.example.blog.dto.BulkImportResponse;
+import gr.example.blog.dto.PostCursorResponse;
 import gr.example.blog.dto.PostDto;
 import gr.example.blog.dto.PostResponse;
+import gr.example.blog.dto.PostSearchResponse;
+import gr.example.blog.mapper.PostMapper;
 import gr.example.blog.model.Post;
 import gr.example.blog.service.PostService;
 import gr.example.blog.service.exception.ResourceNotFoundException;
@@ -14,12 +18,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -34,12 +40,15 @@ public class PostController {
 
     private final PostService postService;
 
-    private final ModelMapper mapper;
+    private final PostMapper mapper;
+
+    private final PostResponseCache postResponseCache;
 
     @Autowired
-    public PostController(PostService postService, ModelMapper mapper){
+    public PostController(PostService postService, PostMapper mapper, PostResponseCache postResponseCache){
         this.postService = postService;
         this.mapper = mapper;
+        this.postResponseCache = postResponseCache;
     }
 
     @SecurityRequirement(
@@ -76,6 +85,27 @@ public class PostController {
     }
 
 
+    @SecurityRequirement(
+            name = "Bear Authentication"
+    )
+    @Operation(
+            summary = "Import posts in bulk",
+            description = "Create up to 10000 posts in one request, the response reports the result of every item")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Posts imported",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BulkImportResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Too many posts were supplied",
+                    content = @Content)})
+    @RequestMapping(value = "/posts/bulk", method = RequestMethod.POST)
+    public ResponseEntity<BulkImportResponse> createPosts(@RequestBody List<PostDto> postDtos) {
+
+        BulkImportResponse response = postService.createPosts(postDtos);
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+
     @Operation(
             summary = "Get all posts",
             description = "Get all posts, choose page or size of response and sort by field" +
@@ -83,7 +113,7 @@ public class PostController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Posts Found",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = PostDto.class)) })})
+                            schema = @Schema(implementation = PostResponse.class)) })})
     @RequestMapping(value = "/posts", method = RequestMethod.GET)
     public PostResponse getAllPost(
             @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int page,
@@ -95,23 +125,73 @@ public class PostController {
         return postService.getAllPosts(page, size, sortBy, sortDir);
     }
 
+    @Operation(
+            summary = "Get posts with cursor pagination",
+            description = "Get a page of posts after or before a cursor, sort by id or title" +
+                    "  in ascending or descending order. The cursor keeps the sort it was created with" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Posts Found",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PostCursorResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or sort field",
+                    content = @Content)})
+    @RequestMapping(value = "/posts/cursor", method = RequestMethod.GET)
+    public PostCursorResponse getPostsByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int size,
+            @RequestParam(value = "sortBy",defaultValue = AppConstants.DEFAULT_SORT_BY,required = false) String sortBy,
+            @RequestParam(value = "sortDir",defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false)
+            String sortDir ){
+
+        return postService.getPostsByCursor(cursor, size, sortBy, sortDir);
+    }
+
+    @Operation(
+            summary = "Search posts",
+            description = "Full text search over title, description and content of the posts," +
+                    "  best matches first. Matches in the title rank higher" )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Search completed",
+                    content = { @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = PostSearchResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Empty query or page out of range",
+                    content = @Content)})
+    @RequestMapping(value = "/posts/search", method = RequestMethod.GET)
+    public PostSearchResponse searchPosts(
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "page", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int page,
+            @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int size){
+
+        return postService.searchPosts(query, page, size);
+    }
+
     @Operation(summary = "Get a Post by id")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Post Found",
                     content = { @Content(mediaType = "application/json",
                             schema = @Schema(implementation = PostDto.class)) }),
+            @ApiResponse(responseCode = "304", description = "Post not modified since the given ETag or date",
+                    content = @Content),
             @ApiResponse(responseCode = "404", description = "Post not found",
                     content = @Content)})
     @RequestMapping(value = "/posts/{postId}", method = RequestMethod.GET)
-    public ResponseEntity<PostDto> getPostById(@PathVariable("postId") Long theId){
-        try {
-            Post post = postService.getPostById(theId);
-            PostDto postDto = map(post);
-
-            return new ResponseEntity<>(postDto, HttpStatus.OK);
-        }catch (ResourceNotFoundException e) {
+    public ResponseEntity<byte[]> getPostById(@PathVariable("postId") Long theId, WebRequest webRequest){
+        //the body is served from the serialized cache, only a miss reads and maps the post
+        PostResponseCache.CachedPost post = postResponseCache.get(theId);
+        if (post == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+
+        //clients that hold the current version get a 304 without a body
+        if (webRequest.checkNotModified(post.getVersion().toETag("post-" + theId),
+                post.getVersion().getLastModifiedMillis())) {
+            return null;
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .body(post.getJson());
     }
 
     @SecurityRequirement(
@@ -166,28 +246,37 @@ public class PostController {
         }
     }
 
-    @Operation(summary = "Get Posts by their category")
+    @Operation(
+            summary = "Get Posts by their category",
+            description = "Get a page of the posts of a category after or before a cursor, sort by id or title" +
+                    "  in ascending or descending order. The cursor keeps the sort it was created with" )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Posts Found",
                     content = { @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = PostDto.class)) }),
-            @ApiResponse(responseCode = "404", description = "Posts not found",
+                            schema = @Schema(implementation = PostCursorResponse.class)) }),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or sort field",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Category not found",
                     content = @Content)})
     @RequestMapping(value = "/categories/{categoryId}/posts", method = RequestMethod.GET)
-    public ResponseEntity<List<PostDto>> getPostsByCategory(@PathVariable("categoryId") Long categoryId) {
+    public ResponseEntity<PostCursorResponse> getPostsByCategory(
+            @PathVariable("categoryId") Long categoryId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int size,
+            @RequestParam(value = "sortBy",defaultValue = AppConstants.DEFAULT_SORT_BY,required = false) String sortBy,
+            @RequestParam(value = "sortDir",defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false)
+            String sortDir) {
         try {
-            List<Post> posts = postService.getPostsByCategory(categoryId);
-            List<PostDto> postDtos = posts.stream().map((post) -> map(post))
-                    .toList();
+            PostCursorResponse posts = postService.getPostsByCategory(categoryId, cursor, size, sortBy, sortDir);
 
-            return new ResponseEntity<>(postDtos,HttpStatus.OK);
+            return new ResponseEntity<>(posts,HttpStatus.OK);
         } catch (ResourceNotFoundException ex) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
     private PostDto map(Post post){
-        PostDto postDto = mapper.map(post, PostDto.class);
+        PostDto postDto = mapper.toDto(post);
 
         return postDto;
     }
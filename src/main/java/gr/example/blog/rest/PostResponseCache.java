@@ -0,0 +1,114 @@
+package gr.example.blog.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.example.blog.datasource.ReadYourWrites;
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.dto.ResourceVersion;
+import gr.example.blog.mapper.PostMapper;
+import gr.example.blog.model.Post;
+import gr.example.blog.service.PostService;
+import gr.example.blog.service.event.CategoryChangedEvent;
+import gr.example.blog.service.event.CommentChangedEvent;
+import gr.example.blog.service.event.PostChangedEvent;
+import gr.example.blog.service.exception.ResourceNotFoundException;
+import gr.example.blog.service.util.CacheLoads;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+//Serialized json of single posts, written to the response as is.
+//The cache is bounded by the total size of the bodies, posts differ a lot in size
+@Component
+public class PostResponseCache {
+
+    //rough per entry overhead of the key, the entry and the version
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final PostService postService;
+    private final PostMapper mapper;
+    private final ObjectMapper objectMapper;
+
+    private final AsyncCache<Long, CachedPost> cache;
+
+    @Autowired
+    public PostResponseCache(PostService postService, PostMapper mapper, ObjectMapper objectMapper,
+                             @Value("${app.post-cache-max-bytes}") long maxBytes) {
+        this.postService = postService;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long id, CachedPost post) -> post.getJson().length + ENTRY_OVERHEAD_BYTES)
+                .recordStats()
+                .buildAsync();
+    }
+
+    //Concurrent reads of the same post wait for a single load. An eviction that arrives
+    //while a load is running drops it, so a post read just before a commit never outlives the eviction
+    public CachedPost get(Long postId) {
+        return CacheLoads.get(cache, postId, this::load);
+    }
+
+    public Cache<Long, CachedPost> getCache() {
+        return cache.synchronous();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        cache.synchronous().invalidate(event.getPostId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentChanged(CommentChangedEvent event) {
+        cache.synchronous().invalidate(event.getPostId());
+    }
+
+    //renames are rare, scanning the cache for the posts of the category is cheap enough
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        cache.synchronous().asMap().values()
+                .removeIf(post -> Objects.equals(post.getCategoryId(), event.getCategoryId()));
+    }
+
+
+    //Missing posts are not cached, caffeine skips null values. The post is read from the primary,
+    //a copy from a lagging replica would be served to every client until the post changes again
+    @SuppressWarnings("try")
+    private CachedPost load(Long postId) {
+        Post post;
+        try (ReadYourWrites.PrimaryScope primary = ReadYourWrites.pinToPrimary()) {
+            post = postService.getPostById(postId);
+        } catch (ResourceNotFoundException ex) {
+            return null;
+        }
+
+        PostDto postDto = mapper.toDto(post);
+        try {
+            return new CachedPost(objectMapper.writeValueAsBytes(postDto),
+                    new ResourceVersion(post.getVersion(), post.getUpdatedAt()),
+                    postDto.getCategoryId());
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+
+    @Getter
+    @AllArgsConstructor
+    public static class CachedPost {
+
+        private final byte[] json;
+        private final ResourceVersion version;
+        private final Long categoryId;
+    }
+}
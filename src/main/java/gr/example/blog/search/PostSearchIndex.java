@@ -0,0 +1,283 @@
+package gr.example.blog.search;
+
+import gr.example.blog.dto.PostSearchHit;
+import gr.example.blog.dto.PostSearchResponse;
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.service.event.PostChangedEvent;
+import gr.example.blog.service.exception.BlogAPIException;
+import jakarta.persistence.EntityManager;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+//In-process inverted index over post title, description and content, kept on local disk.
+//It is rebuilt from the database at startup and updated after every committed post change,
+//the updates reach the disk with the periodic commit
+@Component
+public class PostSearchIndex implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String CONTENT = "content";
+    private static final String CATEGORY_ID = "categoryId";
+
+    //matches in the title weigh more than matches in the description or the content
+    private static final Map<String, Float> BOOSTS = Map.of(TITLE, 3f, DESCRIPTION, 2f, CONTENT, 1f);
+
+    //deepest hit a page can reach, deeper pages are not ranked
+    private static final int MAX_SEARCH_DEPTH = 1000;
+
+    private final PostRepository postRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Directory directory;
+    private final Analyzer analyzer;
+    private final IndexWriter indexWriter;
+    private final SearcherManager searcherManager;
+
+    //while set, searches keep the index as it was before the rebuild started. The lock makes sure
+    //no refresh that checked the flag before it was set is still running when the rebuild starts
+    private volatile boolean rebuilding;
+    private final ReadWriteLock refreshLock = new ReentrantReadWriteLock();
+
+    //post changes that arrive during a rebuild, null when no rebuild runs. The rebuild may read a post
+    //before a change of it commits, so the changes are applied after it and not overwritten by it
+    private List<PostChangedEvent> pendingEvents;
+    private final Object pendingEventsLock = new Object();
+
+    @Autowired
+    public PostSearchIndex(PostRepository postRepository, EntityManager entityManager,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.search.index-dir}") String indexDir) throws IOException {
+        this.postRepository = postRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+
+        this.directory = FSDirectory.open(Path.of(indexDir));
+        this.analyzer = new StandardAnalyzer();
+        this.indexWriter = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    public PostSearchResponse search(String text, int page, int size) {
+        if ((long) page * size >= MAX_SEARCH_DEPTH) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "Search results are limited to the first " + MAX_SEARCH_DEPTH + " hits");
+        }
+
+        Query query;
+        try {
+            MultiFieldQueryParser parser = new MultiFieldQueryParser(new String[]{TITLE, DESCRIPTION, CONTENT},
+                    analyzer, BOOSTS);
+            query = parser.parse(QueryParser.escape(text));
+        } catch (ParseException ex) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid search query");
+        }
+
+        try {
+            //changes are made visible lazily, only when someone searches, and not in the middle of a rebuild
+            refreshLock.readLock().lock();
+            try {
+                if (!rebuilding) {
+                    searcherManager.maybeRefresh();
+                }
+            } finally {
+                refreshLock.readLock().unlock();
+            }
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, (int) Math.min((long) (page + 1) * size, MAX_SEARCH_DEPTH));
+                StoredFields storedFields = searcher.storedFields();
+
+                List<PostSearchHit> hits = new ArrayList<>();
+                ScoreDoc[] scoreDocs = topDocs.scoreDocs;
+                for (int i = page * size; i < scoreDocs.length; i++) {
+                    Document document = storedFields.document(scoreDocs[i].doc);
+                    hits.add(toHit(document, scoreDocs[i].score));
+                }
+
+                long totalHits = topDocs.totalHits.value;
+                boolean last = (long) (page + 1) * size >= Math.min(totalHits, MAX_SEARCH_DEPTH);
+
+                return new PostSearchResponse(hits, page, size, totalHits, last);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(PostChangedEvent event) {
+        synchronized (pendingEventsLock) {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+                return;
+            }
+        }
+        apply(event);
+    }
+
+    //Reindex every post, reading them as a forward only stream. Searches go on with the last
+    //searcher opened before the rebuild until it is committed, they never see a partial index.
+    //Post changes made meanwhile are held back and applied once every post is reindexed
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() throws IOException {
+        refreshLock.writeLock().lock();
+        try {
+            rebuilding = true;
+        } finally {
+            refreshLock.writeLock().unlock();
+        }
+        synchronized (pendingEventsLock) {
+            pendingEvents = new ArrayList<>();
+        }
+
+        try {
+            reindexAll();
+        } finally {
+            applyPendingEvents();
+            rebuilding = false;
+        }
+
+        searcherManager.maybeRefresh();
+        logger.info("Search index rebuilt with {} posts", indexWriter.getDocStats().numDocs);
+    }
+
+    //Makes the incremental updates durable, a restart otherwise starts from the last rebuild.
+    //Skipped during a rebuild, a commit there would store the index half empty
+    @Scheduled(fixedDelayString = "${app.search.commit-interval-ms}")
+    public void commit() throws IOException {
+        if (!rebuilding && indexWriter.hasUncommittedChanges()) {
+            indexWriter.commit();
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+
+    //changes keep arriving while the held back ones are applied, they queue up behind the lock
+    private void applyPendingEvents() {
+        synchronized (pendingEventsLock) {
+            pendingEvents.forEach(this::apply);
+            pendingEvents = null;
+        }
+    }
+
+    private void apply(PostChangedEvent event) {
+        try {
+            Term idTerm = new Term(ID, String.valueOf(event.getPostId()));
+            if (event.isDeleted()) {
+                indexWriter.deleteDocuments(idTerm);
+            } else {
+                indexWriter.updateDocument(idTerm, toDocument(event.getPostId(), event.getTitle(),
+                        event.getDescription(), event.getContent(), event.getCategoryId()));
+            }
+        } catch (IOException ex) {
+            //the post itself is committed already, the next rebuild brings the index back in line
+            logger.error("Could not update search index for post {}", event.getPostId(), ex);
+        }
+    }
+
+    private void reindexAll() throws IOException {
+        indexWriter.deleteAll();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Post> posts = postRepository.streamAllBy()) {
+                posts.forEach(post -> {
+                    Long categoryId = post.getCategory() == null ? null : post.getCategory().getId();
+                    try {
+                        indexWriter.updateDocument(new Term(ID, String.valueOf(post.getId())),
+                                toDocument(post.getId(), post.getTitle(), post.getDescription(),
+                                        post.getContent(), categoryId));
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    entityManager.detach(post);
+                });
+            }
+        });
+
+        indexWriter.commit();
+    }
+
+    private Document toDocument(Long id, String title, String description, String content, Long categoryId) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(id), Field.Store.YES));
+        document.add(new TextField(TITLE, nullToEmpty(title), Field.Store.YES));
+        document.add(new TextField(DESCRIPTION, nullToEmpty(description), Field.Store.YES));
+        document.add(new TextField(CONTENT, nullToEmpty(content), Field.Store.NO));
+        if (categoryId != null) {
+            document.add(new StoredField(CATEGORY_ID, categoryId));
+        }
+        return document;
+    }
+
+    private PostSearchHit toHit(Document document, float score) {
+        IndexableField categoryId = document.getField(CATEGORY_ID);
+        return new PostSearchHit(Long.valueOf(document.get(ID)),
+                document.get(TITLE),
+                document.get(DESCRIPTION),
+                categoryId == null ? null : categoryId.numericValue().longValue(),
+                score);
+    }
+
+    private String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
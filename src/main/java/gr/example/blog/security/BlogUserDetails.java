@@ -0,0 +1,23 @@
+package gr.example.blog.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+public class BlogUserDetails extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long authVersion;
+
+    public BlogUserDetails(String username, String password, Collection<? extends GrantedAuthority> authorities,
+                           long authVersion) {
+        super(username, password, authorities);
+        this.authVersion = authVersion;
+    }
+
+    public long getAuthVersion() {
+        return authVersion;
+    }
+}
@@ -1,43 +1,128 @@
 package gr.example.blog.security;
 
-import gr.example.blog.model.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import gr.example.blog.datasource.ReadYourWrites;
 import gr.example.blog.model.User;
 import gr.example.blog.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collection;
+import java.time.Duration;
+import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
+    //user details cached under both the username and the email of the user
+    private final Cache<String, BlogUserDetails> userDetailsCache;
+
     @Autowired
-    public CustomUserDetailsService(UserRepository userRepository) {
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    @Value("${app.user-details-cache-max-size}") long maxSize,
+                                    @Value("${app.user-details-cache-ttl-seconds}") long ttlSeconds) {
         this.userRepository = userRepository;
+        this.userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
     }
 
     @Override
+    @SuppressWarnings("try")
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
-        User user = userRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
-                .orElseThrow(() ->
-                        new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail));
+        BlogUserDetails cached = userDetailsCache.getIfPresent(cacheKey(usernameOrEmail));
+        if (cached != null) {
+            return copyOf(cached);
+        }
+
+        //the details are cached, they are read from the primary
+        User user;
+        try (ReadYourWrites.PrimaryScope primary = ReadYourWrites.pinToPrimary()) {
+            user = userRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
+                    .orElseThrow(() ->
+                            new UsernameNotFoundException("User not found with username or email: " + usernameOrEmail));
+        }
 
         Set<GrantedAuthority> authorities = user
                 .getRoles()
                 .stream()
                 .map((role) -> new SimpleGrantedAuthority(role.getName())).collect(Collectors.toSet());
 
-        return new org.springframework.security.core.userdetails.User(user.getEmail(),
+        long authVersion = user.getAuthVersion() == null ? 0L : user.getAuthVersion();
+
+        BlogUserDetails userDetails = new BlogUserDetails(user.getEmail(),
                 user.getPassword(),
-                authorities);
+                authorities,
+                authVersion);
+
+        userDetailsCache.put(cacheKey(user.getUsername()), userDetails);
+        userDetailsCache.put(cacheKey(user.getEmail()), userDetails);
+
+        return copyOf(userDetails);
+    }
+
+    //called by the authentication provider after a successful login whose stored hash
+    //was made with another strength, the new hash is computed from the password just checked
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() ->
+                        new UsernameNotFoundException("User not found with email: " + userDetails.getUsername()));
+
+        //the password itself is unchanged, so the rehash does not revoke the tokens of the user.
+        //UserCacheEvictionListener drops the cached details after commit
+        user.rehashPassword(newPassword);
+        userRepository.save(user);
+
+        BlogUserDetails current = (BlogUserDetails) userDetails;
+        return new BlogUserDetails(current.getUsername(), newPassword, current.getAuthorities(),
+                current.getAuthVersion());
+    }
+
+    public void evict(String username, String email) {
+        userDetailsCache.invalidate(cacheKey(username));
+        userDetailsCache.invalidate(cacheKey(email));
+    }
+
+    public void evictAll() {
+        userDetailsCache.invalidateAll();
+    }
+
+    public Cache<String, BlogUserDetails> getCache() {
+        return userDetailsCache;
+    }
+
+    public CacheStats getCacheStats() {
+        return userDetailsCache.stats();
+    }
+
+
+    //the authentication manager erases the password of the returned principal,
+    //so every caller gets its own copy and the cached instance stays intact
+    private BlogUserDetails copyOf(BlogUserDetails userDetails) {
+        return new BlogUserDetails(userDetails.getUsername(),
+                userDetails.getPassword(),
+                userDetails.getAuthorities(),
+                userDetails.getAuthVersion());
+    }
+
+    private String cacheKey(String usernameOrEmail) {
+        return usernameOrEmail == null ? "" : usernameOrEmail.toLowerCase(Locale.ROOT);
     }
 }
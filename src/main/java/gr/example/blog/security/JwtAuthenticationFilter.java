@@ -1,10 +1,12 @@
 package gr.example.blog.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -21,11 +23,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private JwtTokenProvider jwtTokenProvider;
     private UserDetailsService userDetailsService;
+    private UserAuthVersions userAuthVersions;
+
+    //when enabled the principal is built from the token claims instead of the database
+    private boolean statelessAuth;
 
     @Autowired
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService,
+                                   UserAuthVersions userAuthVersions,
+                                   @Value("${app.jwt-stateless-auth}") boolean statelessAuth) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.userDetailsService = userDetailsService;
+        this.userAuthVersions = userAuthVersions;
+        this.statelessAuth = statelessAuth;
     }
 
     @Override
@@ -35,27 +45,59 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         //Get JWT  token from http request (header)
         String token = getTokenFromRequest(request);
 
-        //validate the token
-        if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
+        if (StringUtils.hasText(token)) {
 
-            //get username from the token
-            String username = jwtTokenProvider.getUsername(token);
+            //validate the token once and get username from its claims
+            Claims claims = jwtTokenProvider.getClaims(token);
+            String username = claims.getSubject();
 
             //load the user associated with token
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            UserDetails userDetails = statelessAuth
+                    ? loadUserFromClaims(claims, username)
+                    : loadUser(claims, username);
+
+            //a token issued before a role or password change is left unauthenticated
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()
+                );
+
+                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
 
-            UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
-                    userDetails,
-                    null,
-                    userDetails.getAuthorities()
-            );
 
-            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+    private UserDetails loadUserFromClaims(Claims claims, String username) {
+        BlogUserDetails userDetails = jwtTokenProvider.getUserDetails(claims);
 
-            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+        //tokens issued without roles in their claims still go through the database
+        if (userDetails == null) {
+            return loadUser(claims, username);
         }
 
-        filterChain.doFilter(request, response);
+        if (!userAuthVersions.isCurrent(username, userDetails.getAuthVersion())) {
+            return null;
+        }
+        return userDetails;
+    }
+
+    //tokens issued before auth versions existed carry none, they belong to the first version
+    private UserDetails loadUser(Claims claims, String username) {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+
+        Long tokenVersion = jwtTokenProvider.getAuthVersion(claims);
+        long version = tokenVersion == null ? 0L : tokenVersion;
+        if (userDetails instanceof BlogUserDetails blogUserDetails && blogUserDetails.getAuthVersion() != version) {
+            return null;
+        }
+        return userDetails;
     }
 
 
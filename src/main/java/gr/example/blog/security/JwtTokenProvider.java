@@ -1,24 +1,58 @@
 package gr.example.blog.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import gr.example.blog.service.exception.BlogAPIException;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
-    @Value("${app.jwt-secret}")
-    private String jwtSecretKey;
 
-    @Value("${app.jwt-expiration-millisec}")
-    private Long jwtExpirationDate;
+    private static final String ROLES_CLAIM = "roles";
+    private static final String VERSION_CLAIM = "ver";
+
+    private final Long jwtExpirationDate;
+
+    //key and parser are immutable and thread safe, so we build them once at startup
+    private final Key key;
+    private final JwtParser jwtParser;
+
+    //tokens that already passed the signature check, each entry expires together with its token
+    private final Cache<String, Claims> verifiedTokens;
+
+    @Autowired
+    public JwtTokenProvider(@Value("${app.jwt-secret}") String jwtSecretKey,
+                            @Value("${app.jwt-expiration-millisec}") Long jwtExpirationDate,
+                            @Value("${app.jwt-cache-max-size}") long jwtCacheMaxSize) {
+        this.jwtExpirationDate = jwtExpirationDate;
+        this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecretKey));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(jwtCacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+    }
 
 
     //generate JWT token
@@ -28,11 +62,22 @@ public class JwtTokenProvider {
         Date currentDate = new Date();
         Date expireDate = new Date(currentDate.getTime() + jwtExpirationDate);
 
-        Key key = getKey();
+        //roles and auth version let the filter build the principal without a database lookup
+        List<String> roles = authentication.getAuthorities()
+                .stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+
+        long authVersion = 0L;
+        if (authentication.getPrincipal() instanceof BlogUserDetails userDetails) {
+            authVersion = userDetails.getAuthVersion();
+        }
 
         String token = Jwts.builder()
                 .setSubject(username)
-                .setIssuedAt(new Date())
+                .claim(ROLES_CLAIM, roles)
+                .claim(VERSION_CLAIM, authVersion)
+                .setIssuedAt(currentDate)
                 .setExpiration(expireDate)
                 .signWith(key)
                 .compact();
@@ -40,34 +85,67 @@ public class JwtTokenProvider {
     }
 
 
-    private Key getKey() {
-        return Keys.hmacShaKeyFor(
-                Decoders.BASE64.decode(jwtSecretKey)
-        );
+    //get the verified claims of a token, the signature is checked only the first time we see the token
+    public Claims getClaims(String token) {
+        Claims claims = verifiedTokens.getIfPresent(token);
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = parseClaims(token);
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(token, claims);
+        }
+        return claims;
     }
 
 
     //get username from Jwt token
     public String getUsername(String token) {
-          Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        String username = claims.getSubject();
-        return username;
+        return getClaims(token).getSubject();
+    }
+
+
+    //get the auth version the token was issued with, null for tokens issued without one
+    public Long getAuthVersion(Claims claims) {
+        Number authVersion = claims.get(VERSION_CLAIM, Number.class);
+        return authVersion == null ? null : authVersion.longValue();
+    }
+
+
+    //build the principal straight from the claims, null for tokens issued without roles
+    public BlogUserDetails getUserDetails(Claims claims) {
+        Long authVersion = getAuthVersion(claims);
+        Object roles = claims.get(ROLES_CLAIM);
+        if (authVersion == null || !(roles instanceof Collection<?> roleNames)) {
+            return null;
+        }
+
+        Set<GrantedAuthority> authorities = roleNames
+                .stream()
+                .map((role) -> new SimpleGrantedAuthority(role.toString()))
+                .collect(Collectors.toSet());
+
+        return new BlogUserDetails(claims.getSubject(), "", authorities, authVersion);
     }
 
 
     //validate jwt token
     public boolean validateToken(String token) {
+        getClaims(token);
+        return true;
+    }
+
+    public Cache<String, Claims> getVerifiedTokens() {
+        return verifiedTokens;
+    }
+
+
+    private Claims parseClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getKey())
-                    .build()
-                    .parse(token);
-            return true;
+            return jwtParser
+                    .parseClaimsJws(token)
+                    .getBody();
         }catch (MalformedJwtException ex){
             throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid JWT token");
         }catch (ExpiredJwtException ex) {
@@ -78,4 +156,24 @@ public class JwtTokenProvider {
             throw new BlogAPIException(HttpStatus.BAD_REQUEST, "JWT claims string is empty");
         }
     }
+
+
+    private static class TokenExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String token, Claims claims, long currentTime) {
+            long millisLeft = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String token, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
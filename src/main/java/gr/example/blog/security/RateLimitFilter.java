@@ -0,0 +1,275 @@
+package gr.example.blog.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.example.blog.dto.ErrorDetails;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+//Token bucket limits per client address, and for logins and registrations also per account,
+//so a single client cannot use up the cpu with password hashes or flood the write endpoints.
+//It runs ahead of JwtAuthenticationFilter, limited requests never reach the token check
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    //login and register bodies are small, only this much is read to find the account
+    private static final int MAX_ACCOUNT_BODY_BYTES = 4096;
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final List<String> ACCOUNT_FIELDS = List.of("usernameOrEmail", "username", "email");
+
+    private final ObjectMapper objectMapper;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    private final boolean enabled;
+    private final Map<RateLimitGroup, Limit> limits = new EnumMap<>(RateLimitGroup.class);
+
+    @Autowired
+    public RateLimitFilter(Environment environment, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.enabled = environment.getRequiredProperty("app.rate-limit.enabled", Boolean.class);
+
+        long maxKeys = environment.getRequiredProperty("app.rate-limit.max-keys", Long.class);
+        Duration idle = Duration.ofSeconds(environment.getRequiredProperty("app.rate-limit.idle-seconds", Long.class));
+
+        for (RateLimitGroup group : RateLimitGroup.values()) {
+            String prefix = "app.rate-limit." + group.getPropertyName();
+            long capacity = environment.getRequiredProperty(prefix + ".capacity", Long.class);
+            long refillPerMinute = environment.getRequiredProperty(prefix + ".refill-per-minute", Long.class);
+
+            limits.put(group, new Limit(group, capacity, refillPerMinute, maxKeys, idle, meterRegistry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimitGroup group = RateLimitGroup.of(request.getMethod(), urlPathHelper.getPathWithinApplication(request));
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        List<String> keys = new ArrayList<>();
+        keys.add("ip:" + request.getRemoteAddr());
+
+        if (group == RateLimitGroup.AUTH) {
+            BufferedBodyRequest bufferedRequest = new BufferedBodyRequest(request);
+            keys.addAll(accountKeys(bufferedRequest.getPrefix()));
+            request = bufferedRequest;
+        }
+
+        long waitNanos = limits.get(group).tryConsume(keys);
+        if (waitNanos > 0) {
+            reject(request, response, waitNanos);
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+
+    private List<String> accountKeys(byte[] body) {
+        List<String> keys = new ArrayList<>();
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            for (String field : ACCOUNT_FIELDS) {
+                JsonNode value = json == null ? null : json.get(field);
+                if (value != null && StringUtils.hasText(value.asText())) {
+                    keys.add("account:" + value.asText().toLowerCase(Locale.ROOT));
+                }
+            }
+        } catch (IOException ex) {
+            //not json or longer than the prefix, the controller reports the bad request
+        }
+        return keys;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), "Too many requests, try again later",
+                "uri=" + request.getRequestURI());
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorDetails);
+    }
+
+
+    //buckets of one route group, idle clients are dropped and the number of tracked keys is bounded
+    private static class Limit {
+
+        private final long capacity;
+        private final long refillIntervalNanos;
+        private final Cache<String, TokenBucket> buckets;
+        private final Counter rejected;
+
+        private Limit(RateLimitGroup group, long capacity, long refillPerMinute, long maxKeys, Duration idle,
+                      MeterRegistry meterRegistry) {
+            String prefix = "app.rate-limit." + group.getPropertyName();
+            if (capacity <= 0) {
+                throw new IllegalStateException(prefix + ".capacity must be greater than 0, was " + capacity);
+            }
+            if (refillPerMinute <= 0) {
+                throw new IllegalStateException(prefix + ".refill-per-minute must be greater than 0, was "
+                        + refillPerMinute);
+            }
+            //the refill interval is kept in whole nanoseconds
+            if (refillPerMinute > TimeUnit.MINUTES.toNanos(1)) {
+                throw new IllegalStateException(prefix + ".refill-per-minute must be at most "
+                        + TimeUnit.MINUTES.toNanos(1) + ", was " + refillPerMinute);
+            }
+
+            this.capacity = capacity;
+            this.refillIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(idle)
+                    .build();
+
+            this.rejected = Counter.builder("http.rate_limit.rejected")
+                    .tag("group", group.getPropertyName())
+                    .description("Requests answered with 429")
+                    .register(meterRegistry);
+            Gauge.builder("http.rate_limit.keys", buckets, Cache::estimatedSize)
+                    .tag("group", group.getPropertyName())
+                    .description("Clients and accounts tracked by the limiter")
+                    .register(meterRegistry);
+        }
+
+        //A request has to fit in every one of its buckets, the address comes first. The buckets taken
+        //before a refusal get their token back, a refused request must not drain the account it names
+        private long tryConsume(List<String> keys) {
+            List<TokenBucket> taken = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                TokenBucket bucket = buckets.get(key, k -> new TokenBucket(capacity, refillIntervalNanos));
+                long waitNanos = bucket.tryConsume();
+                if (waitNanos > 0) {
+                    taken.forEach(TokenBucket::refund);
+                    rejected.increment();
+                    return waitNanos;
+                }
+                taken.add(bucket);
+            }
+            return 0;
+        }
+    }
+
+    //keeps the start of the body readable for the limiter, the controller reads the prefix
+    //followed by whatever is left of the original stream
+    private static class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] prefix;
+        private final ServletInputStream inputStream;
+
+        private boolean finished;
+
+        private BufferedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            ServletInputStream original = request.getInputStream();
+            this.prefix = original.readNBytes(MAX_ACCOUNT_BODY_BYTES);
+
+            InputStream body = new SequenceInputStream(new ByteArrayInputStream(prefix), original);
+            this.inputStream = new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return finished;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                //the body is always ready, the listener gets it all in one call
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    Objects.requireNonNull(readListener, "readListener");
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    } catch (IOException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() throws IOException {
+                    return atEnd(body.read());
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int length) throws IOException {
+                    return atEnd(body.read(bytes, offset, length));
+                }
+            };
+        }
+
+        private byte[] getPrefix() {
+            return prefix;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() == null
+                    ? StandardCharsets.UTF_8 : Charset.forName(getCharacterEncoding());
+            return new BufferedReader(new InputStreamReader(inputStream, charset));
+        }
+
+        private int atEnd(int result) {
+            if (result == -1) finished = true;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package gr.example.blog.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.List;
+
+//Routes that share a rate limit, requests outside these groups are not limited
+public enum RateLimitGroup {
+
+    //every call hashes a password, so they are the most expensive requests we serve
+    AUTH("auth", List.of("/api/login", "/api/register")),
+
+    COMMENT_WRITES("comment-writes", List.of("/api/posts/*/comments/**")),
+
+    ADMIN_WRITES("admin-writes", List.of("/api/posts", "/api/posts/*", "/api/posts/bulk",
+            "/api/comments/bulk", "/api/categories/**"));
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final String propertyName;
+    private final List<String> pathPatterns;
+
+    RateLimitGroup(String propertyName, List<String> pathPatterns) {
+        this.propertyName = propertyName;
+        this.pathPatterns = pathPatterns;
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    //reads are never limited, only writes and logins
+    public static RateLimitGroup of(String method, String path) {
+        if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || HttpMethod.OPTIONS.matches(method)) {
+            return null;
+        }
+
+        for (RateLimitGroup group : values()) {
+            if (group.pathPatterns.stream().anyMatch(pattern -> PATH_MATCHER.match(pattern, path))) {
+                return group;
+            }
+        }
+        return null;
+    }
+}
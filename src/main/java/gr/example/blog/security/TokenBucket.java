@@ -0,0 +1,61 @@
+package gr.example.blog.security;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+//Token bucket kept as a single timestamp, the time at which the bucket will be full again.
+//Taking a token moves that time forward by one refill interval, with a compare and set,
+//so concurrent requests of the same client never block each other
+public class TokenBucket {
+
+    private final long refillIntervalNanos;
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong fullAt;
+
+    public TokenBucket(long capacity, long refillIntervalNanos) {
+        this(capacity, refillIntervalNanos, System::nanoTime);
+    }
+
+    TokenBucket(long capacity, long refillIntervalNanos, LongSupplier nanoClock) {
+        if (capacity <= 0 || refillIntervalNanos <= 0) {
+            throw new IllegalArgumentException("Capacity and refill interval must be greater than 0, were "
+                    + capacity + " and " + refillIntervalNanos);
+        }
+        this.refillIntervalNanos = refillIntervalNanos;
+        this.burstNanos = capacity * refillIntervalNanos;
+        this.nanoClock = nanoClock;
+        this.fullAt = new AtomicLong(nanoClock.getAsLong() - burstNanos);
+    }
+
+    //takes a token and returns 0, or returns how long to wait for the next one
+    public long tryConsume() {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + refillIntervalNanos;
+
+            if (next - now > burstNanos) {
+                return next - now - burstNanos;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    //gives back a token taken by tryConsume, a full bucket stays as it is
+    public void refund() {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long current = fullAt.get();
+            if (current - now <= 0) {
+                return;
+            }
+            if (fullAt.compareAndSet(current, Math.max(current - refillIntervalNanos, now))) {
+                return;
+            }
+        }
+    }
+}
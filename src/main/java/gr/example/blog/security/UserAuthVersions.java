@@ -0,0 +1,58 @@
+package gr.example.blog.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import gr.example.blog.datasource.ReadYourWrites;
+import gr.example.blog.repository.UserRepository;
+import gr.example.blog.service.util.CacheLoads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Component
+public class UserAuthVersions {
+
+    private final UserRepository userRepository;
+
+    //latest auth version per user email, a missing user is cached as -1
+    private final AsyncCache<String, Long> versions;
+
+    @Autowired
+    public UserAuthVersions(UserRepository userRepository,
+                            @Value("${app.jwt-version-cache-max-size}") long maxSize,
+                            @Value("${app.jwt-version-cache-ttl-seconds}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+    }
+
+    //Check that a token was issued with the current auth version of the user. User bumps the
+    //version on password and role changes, UserCacheEvictionListener evicts it after commit
+    public boolean isCurrent(String email, long tokenVersion) {
+        Long currentVersion = CacheLoads.get(versions, email, this::loadVersion);
+        return currentVersion >= 0 && currentVersion == tokenVersion;
+    }
+
+    public void evict(String email) {
+        versions.synchronous().invalidate(email);
+    }
+
+    public AsyncCache<String, Long> getVersions() {
+        return versions;
+    }
+
+    //read from the primary, a replica behind a bump would keep a revoked token alive for the whole ttl
+    @SuppressWarnings("try")
+    private Long loadVersion(String email) {
+        try (ReadYourWrites.PrimaryScope primary = ReadYourWrites.pinToPrimary()) {
+            Optional<Long> version = userRepository.findAuthVersionByEmail(email);
+            return version.orElse(-1L);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package gr.example.blog.security;
+
+import gr.example.blog.model.Role;
+import gr.example.blog.model.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//Entity listener of User and Role, every change to these entities drops the cached
+//user details and auth versions. Hibernate creates it through the Spring bean container,
+//the caches are looked up lazily because they depend on the entity manager factory themselves
+public class UserCacheEvictionListener {
+
+    private final ObjectProvider<CustomUserDetailsService> userDetailsService;
+    private final ObjectProvider<UserAuthVersions> userAuthVersions;
+
+    @Autowired
+    public UserCacheEvictionListener(ObjectProvider<CustomUserDetailsService> userDetailsService,
+                                     ObjectProvider<UserAuthVersions> userAuthVersions) {
+        this.userDetailsService = userDetailsService;
+        this.userAuthVersions = userAuthVersions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof User user) {
+            //copy the keys, the entity may change again before the transaction commits
+            String username = user.getUsername();
+            String email = user.getEmail();
+            afterCommit(() -> {
+                userDetailsService.getObject().evict(username, email);
+                userAuthVersions.getObject().evict(email);
+            });
+        } else if (entity instanceof Role) {
+            afterCommit(() -> userDetailsService.getObject().evictAll());
+        }
+    }
+
+    //evicting before commit would let a concurrent request cache the old row again
+    private void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+}
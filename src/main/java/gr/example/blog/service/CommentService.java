@@ -1,22 +1,33 @@
 package gr.example.blog.service;
 
+import gr.example.blog.dto.BulkImportResponse;
 import gr.example.blog.dto.CommentDto;
+import gr.example.blog.dto.CommentImportDto;
+import gr.example.blog.dto.CommentResponse;
+import gr.example.blog.dto.ResourceVersion;
 import gr.example.blog.model.Comment;
 import gr.example.blog.service.exception.BlogAPIException;
 import gr.example.blog.service.exception.ResourceNotFoundException;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CommentService {
 
     Comment createComment(Long postId, CommentDto commentDto) throws ResourceNotFoundException;
 
-    List<Comment> getCommentsByPostId(Long postId);
+    BulkImportResponse createComments(List<CommentImportDto> commentDtos);
+
+    CommentResponse getCommentsByPostId(Long postId, String cursor, int size) throws ResourceNotFoundException;
+
+    Optional<ResourceVersion> getCommentsVersion(Long postId);
+
+    Optional<ResourceVersion> getCommentVersion(Long postId, Long commentId);
 
     Comment getCommentById(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException;
 
     Comment updateComment(Long postId, Long commentId, CommentDto commentDto)
             throws ResourceNotFoundException,BlogAPIException;
 
-    void deleteComment(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException;
+    Comment deleteComment(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException;
 }
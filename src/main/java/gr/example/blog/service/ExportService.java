@@ -0,0 +1,11 @@
+package gr.example.blog.service;
+
+import gr.example.blog.dto.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+
+    void exportPosts(OutputStream outputStream, ExportFormat format) throws IOException;
+}
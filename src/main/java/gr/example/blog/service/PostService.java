@@ -1,7 +1,10 @@
 package gr.example.blog.service;
 
+import gr.example.blog.dto.BulkImportResponse;
+import gr.example.blog.dto.PostCursorResponse;
 import gr.example.blog.dto.PostDto;
 import gr.example.blog.dto.PostResponse;
+import gr.example.blog.dto.PostSearchResponse;
 import gr.example.blog.model.Post;
 import gr.example.blog.service.exception.ResourceNotFoundException;
 
@@ -11,13 +14,20 @@ public interface PostService {
 
     Post createPost(PostDto postDto) throws ResourceNotFoundException;
 
+    BulkImportResponse createPosts(List<PostDto> postDtos);
+
     PostResponse getAllPosts(int page, int size, String sortBy, String sortDir);
 
+    PostCursorResponse getPostsByCursor(String cursor, int size, String sortBy, String sortDir);
+
     Post getPostById(Long id) throws ResourceNotFoundException;
 
     Post updatePost(PostDto postDto) throws ResourceNotFoundException;
 
     void deletePost(Long id) throws ResourceNotFoundException;
 
-    List<Post> getPostsByCategory(Long categoryId) throws ResourceNotFoundException;
+    PostCursorResponse getPostsByCategory(Long categoryId, String cursor, int size, String sortBy, String sortDir)
+            throws ResourceNotFoundException;
+
+    PostSearchResponse searchPosts(String query, int page, int size);
 }
@@ -0,0 +1,12 @@
+package gr.example.blog.service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Published by the category service whenever a category is updated or deleted
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+
+    private final Long categoryId;
+}
@@ -0,0 +1,12 @@
+package gr.example.blog.service.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Published by the comment service whenever a comment of a post is created, updated or deleted
+@Getter
+@AllArgsConstructor
+public class CommentChangedEvent {
+
+    private final Long postId;
+}
@@ -0,0 +1,29 @@
+package gr.example.blog.service.event;
+
+import gr.example.blog.model.Post;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Published by the post service whenever a post is created, updated or deleted.
+//It carries a copy of the fields, listeners run after commit when the entity may be detached
+@Getter
+@AllArgsConstructor
+public class PostChangedEvent {
+
+    private final Long postId;
+    private final String title;
+    private final String description;
+    private final String content;
+    private final Long categoryId;
+    private final boolean deleted;
+
+    public static PostChangedEvent saved(Post post) {
+        Long categoryId = post.getCategory() == null ? null : post.getCategory().getId();
+        return new PostChangedEvent(post.getId(), post.getTitle(), post.getDescription(), post.getContent(),
+                categoryId, false);
+    }
+
+    public static PostChangedEvent deleted(Long postId) {
+        return new PostChangedEvent(postId, null, null, null, null, true);
+    }
+}
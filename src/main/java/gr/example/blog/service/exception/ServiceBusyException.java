@@ -0,0 +1,17 @@
+package gr.example.blog.service.exception;
+
+//Thrown when a bounded resource has no room for more work, the request is answered
+//with 503 and the client is told when to retry
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -1,5 +1,6 @@
 package gr.example.blog.service.impl;
 
+import gr.example.blog.datasource.ReadYourWrites;
 import gr.example.blog.dto.LoginDto;
 import gr.example.blog.dto.RegisterDto;
 import gr.example.blog.model.Role;
@@ -57,6 +58,7 @@ public class AuthServiceImpl implements AuthService {
     }
 
     @Override
+    @SuppressWarnings("try")
     public String register(RegisterDto registerDto) {
         String username = registerDto.getUsername();
         String email = registerDto.getEmail();
@@ -79,7 +81,11 @@ public class AuthServiceImpl implements AuthService {
         user.setPassword(hashedPassword);
 
         Set<Role> roles = new HashSet<>();
-        Role userRole = roleRepository.findByName("ROLE_USER").get();
+        //the role lookup goes to the query cache, it is read from the primary
+        Role userRole;
+        try (ReadYourWrites.PrimaryScope primary = ReadYourWrites.pinToPrimary()) {
+            userRole = roleRepository.findByName("ROLE_USER").get();
+        }
         roles.add(userRole);
         user.setRoles(roles);
 
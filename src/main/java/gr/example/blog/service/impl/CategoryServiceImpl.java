@@ -1,13 +1,19 @@
 package gr.example.blog.service.impl;
 
+import gr.example.blog.datasource.ReadYourWrites;
 import gr.example.blog.dto.CategoryDto;
+import gr.example.blog.mapper.CategoryMapper;
 import gr.example.blog.model.Category;
 import gr.example.blog.repository.CategoryRepository;
+import gr.example.blog.repository.PostRepository;
 import gr.example.blog.service.CategoryService;
+import gr.example.blog.service.event.CategoryChangedEvent;
+import gr.example.blog.service.event.PostChangedEvent;
 import gr.example.blog.service.exception.ResourceNotFoundException;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,38 +23,57 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final  CategoryRepository categoryRepository;
 
-    private final ModelMapper modelMapper;
+    private final PostRepository postRepository;
+
+    private final CategoryMapper categoryMapper;
+
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CategoryServiceImpl(CategoryRepository categoryRepository, ModelMapper modelMapper) {
+    public CategoryServiceImpl(CategoryRepository categoryRepository, PostRepository postRepository,
+                               CategoryMapper categoryMapper, ApplicationEventPublisher eventPublisher) {
         this.categoryRepository = categoryRepository;
-        this.modelMapper = modelMapper;
+        this.postRepository = postRepository;
+        this.categoryMapper = categoryMapper;
+        this.eventPublisher = eventPublisher;
     }
 
 
     @Override
     public Category addCategory(CategoryDto categoryDto) {
-        Category category = modelMapper.map(categoryDto, Category.class);
+        Category category = categoryMapper.toEntity(categoryDto);
 
         return categoryRepository.save(category);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("try")
     public Category getCategoryById(Long categoryId) throws ResourceNotFoundException {
 
-        Optional<Category> category = categoryRepository.findById(categoryId);
+        //categories end up in the second level cache, they are read from the primary
+        Optional<Category> category;
+        try (ReadYourWrites.PrimaryScope primary = ReadYourWrites.pinToPrimary()) {
+            category = categoryRepository.findById(categoryId);
+        }
         if (category.isEmpty()) throw new ResourceNotFoundException("category","id", categoryId);
 
         return category.get();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("try")
     public List<Category> getAllCategories() {
 
-        return categoryRepository.findAll();
+        //the result goes to the query cache
+        try (ReadYourWrites.PrimaryScope primary = ReadYourWrites.pinToPrimary()) {
+            return categoryRepository.findAll();
+        }
     }
 
     @Override
+    @Transactional
     public Category updateCategory(CategoryDto categoryDto) throws ResourceNotFoundException {
 
         Optional<Category> category = categoryRepository.findById(categoryDto.getId());
@@ -60,16 +85,24 @@ public class CategoryServiceImpl implements CategoryService {
         updatedCategory.setName(categoryDto.getName());
         updatedCategory.setDescription(categoryDto.getDescription());
 
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryDto.getId()));
+
         return categoryRepository.save(updatedCategory);
     }
 
     @Override
+    @Transactional
     public void deleteCategoryById(Long categoryId) throws ResourceNotFoundException {
 
         Optional<Category> categoryOpt = categoryRepository.findById(categoryId);
         if (categoryOpt.isEmpty()) throw new ResourceNotFoundException("category","id", categoryId);
 
+        //the posts of the category are removed with it, only their ids are read
+        List<Long> postIds = postRepository.findIdsByCategoryId(categoryId);
+
         categoryRepository.deleteById(categoryId);
+        postIds.forEach(postId -> eventPublisher.publishEvent(PostChangedEvent.deleted(postId)));
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId));
     }
 
 
@@ -0,0 +1,52 @@
+package gr.example.blog.service.impl;
+
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.service.event.CommentChangedEvent;
+import gr.example.blog.service.util.AppConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+//Recounts the comments of posts whose stored comment count drifted from the comments table,
+//for example after comments were changed outside the application
+@Component
+public class CommentCountReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentCountReconciler.class);
+
+    private final PostRepository postRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public CommentCountReconciler(PostRepository postRepository, ApplicationEventPublisher eventPublisher) {
+        this.postRepository = postRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Scheduled(cron = "${app.comment-count-reconcile-cron}")
+    @Transactional
+    public void reconcile() {
+        List<Long> postIds = postRepository.findIdsWithStaleCommentCount();
+        if (postIds.isEmpty()) {
+            return;
+        }
+
+        //the recount runs in the update itself, comments added in between are counted too
+        Instant now = Instant.now();
+        for (int from = 0; from < postIds.size(); from += AppConstants.BULK_CHUNK_SIZE) {
+            List<Long> chunk = postIds.subList(from, Math.min(from + AppConstants.BULK_CHUNK_SIZE, postIds.size()));
+            postRepository.recountComments(chunk, now);
+        }
+        postIds.forEach(postId -> eventPublisher.publishEvent(new CommentChangedEvent(postId)));
+
+        logger.warn("Comment count of {} posts was out of date and has been recounted", postIds.size());
+    }
+}
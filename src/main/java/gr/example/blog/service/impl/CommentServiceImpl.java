@@ -1,21 +1,49 @@
 package gr.example.blog.service.impl;
 
+import gr.example.blog.dto.BulkImportResponse;
+import gr.example.blog.dto.BulkItemResult;
 import gr.example.blog.dto.CommentDto;
+import gr.example.blog.dto.CommentImportDto;
+import gr.example.blog.dto.CommentResponse;
+import gr.example.blog.dto.ResourceVersion;
+import gr.example.blog.mapper.CommentMapper;
 import gr.example.blog.model.Comment;
-import gr.example.blog.model.Post;
 import gr.example.blog.repository.CommentRepository;
 import gr.example.blog.repository.PostRepository;
 import gr.example.blog.service.CommentService;
+import gr.example.blog.service.event.CommentChangedEvent;
 import gr.example.blog.service.exception.BlogAPIException;
 import gr.example.blog.service.exception.ResourceNotFoundException;
-import org.modelmapper.ModelMapper;
+import gr.example.blog.service.util.AppConstants;
+import gr.example.blog.service.util.CursorCodec;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class CommentServiceImpl implements CommentService {
@@ -23,54 +51,143 @@ public class CommentServiceImpl implements CommentService {
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
 
-    private ModelMapper mapper;
+    private CommentMapper mapper;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository,
-                              ModelMapper mapper) {
+                              CommentMapper mapper, EntityManager entityManager,
+                              PlatformTransactionManager transactionManager, Validator validator,
+                              ApplicationEventPublisher eventPublisher) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
         this.mapper = mapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     @Transactional
     public Comment createComment(Long postId, CommentDto commentDto) throws ResourceNotFoundException {
         Comment comment = mapToComment(commentDto);
+        comment.setId(null);
 
-        //retrieve post entity by id
-        Post post = getPostById(postId);
+        //the count update doubles as the existence check, the post itself is never loaded
+        if (postRepository.adjustCommentCount(postId, 1, Instant.now()) == 0) {
+            throw new ResourceNotFoundException("Post", "ID", postId);
+        }
 
         //set post to comment entity
-        comment.setPost(post);
+        comment.setPost(postRepository.getReferenceById(postId));
+
+        eventPublisher.publishEvent(new CommentChangedEvent(postId));
 
         //save entity to database
         return  commentRepository.save(comment);
     }
 
     @Override
-    public List<Comment> getCommentsByPostId(Long postId) {
-        //retrieve comments by postId
+    public BulkImportResponse createComments(List<CommentImportDto> commentDtos) {
+        if (commentDtos.size() > AppConstants.MAX_BULK_SIZE) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "At most " + AppConstants.MAX_BULK_SIZE + " comments can be imported per request");
+        }
 
-        List<Comment> comments = commentRepository.findByPostId(postId);
+        BulkItemResult[] results = new BulkItemResult[commentDtos.size()];
+
+        //check every referenced post with a single query
+        Set<Long> postIds = commentDtos.stream()
+                .filter(Objects::nonNull)
+                .map(CommentImportDto::getPostId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingPostIds = postIds.isEmpty() ? Set.of() : postRepository.findExistingIds(postIds);
+
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < commentDtos.size(); i++) {
+            String error = validateComment(commentDtos.get(i), existingPostIds);
+            if (error != null) {
+                results[i] = BulkItemResult.failed(i, error);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        //every chunk is written in its own transaction, a failing chunk does not undo the others
+        for (int from = 0; from < validIndexes.size(); from += AppConstants.BULK_CHUNK_SIZE) {
+            List<Integer> chunk = validIndexes.subList(from,
+                    Math.min(from + AppConstants.BULK_CHUNK_SIZE, validIndexes.size()));
+            try {
+                Map<Integer, Long> createdIds = transactionTemplate.execute(status ->
+                        createCommentsChunk(commentDtos, chunk));
+                createdIds.forEach((index, id) -> results[index] = BulkItemResult.created(index, id));
+            } catch (DataAccessException | TransactionException ex) {
+                for (Integer index : chunk) {
+                    results[index] = BulkItemResult.failed(index, "Batch could not be written");
+                }
+            }
+        }
 
-        return comments;
+        List<BulkItemResult> resultList = Arrays.asList(results);
+        int created = (int) resultList.stream().filter(result -> BulkItemResult.CREATED.equals(result.getStatus())).count();
+
+        return new BulkImportResponse(created, resultList.size() - created, resultList);
     }
 
     @Override
-    public Comment getCommentById(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException {
-        //retrieve post entity by id
-        Post currentPost = getPostById(postId);
+    @Transactional(readOnly = true)
+    public CommentResponse getCommentsByPostId(Long postId, String cursor, int size) throws ResourceNotFoundException {
+        Pageable pageable = PageRequest.of(0, Math.min(Math.max(size, 1), AppConstants.MAX_PAGE_SIZE));
+
+        //retrieve a page of comments by postId, after the last comment of the previous page
+        Slice<Comment> slice;
+        if (StringUtils.hasText(cursor)) {
+            Long lastId = CursorCodec.decodeId(CursorCodec.decode(cursor, 1)[0]);
+            slice = commentRepository.findByPostIdAndIdGreaterThanOrderByIdAsc(postId, lastId, pageable);
+        } else {
+            slice = commentRepository.findByPostIdOrderByIdAsc(postId, pageable);
+            if (!slice.hasContent()) throw new ResourceNotFoundException("Comments", "Post ID", postId);
+        }
 
+        List<CommentDto> comments = slice.getContent().stream().map(mapper::toDto).toList();
 
-        //retrieve comment by id
-        Comment currectComment = getCommentById(commentId);
+        String nextCursor = slice.hasNext()
+                ? CursorCodec.encode(String.valueOf(comments.get(comments.size() - 1).getId()))
+                : null;
 
-        if (!currectComment.getPost().getId().equals(currentPost.getId())) {
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
-        }
+        return new CommentResponse(comments, comments.size(), nextCursor);
+    }
+
+    //the comments of a post change exactly when the post version does
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ResourceVersion> getCommentsVersion(Long postId) {
+        return postRepository.findVersionById(postId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<ResourceVersion> getCommentVersion(Long postId, Long commentId) {
+        return commentRepository.findVersionByIdAndPostId(commentId, postId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Comment getCommentById(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException {
+        //retrieve comment by id, only if it belongs to the post
+        Optional<Comment> comment = commentRepository.findByIdAndPostId(commentId, postId);
+        if (comment.isEmpty()) throwMissingComment(postId, commentId);
 
-        return currectComment;
+        return comment.get();
     }
 
 
@@ -78,58 +195,98 @@ public class CommentServiceImpl implements CommentService {
     @Transactional
     public Comment updateComment(Long postId, Long commentId, CommentDto commentDto)
             throws ResourceNotFoundException, BlogAPIException{
-        //retrieve post entity by id
-        Post currentPost = getPostById(postId);
+        Instant now = Instant.now();
 
+        //update the comment in place, only if it belongs to the post
+        int updated = commentRepository.updateByIdAndPostId(commentId, postId, commentDto.getName(),
+                commentDto.getEmail(), commentDto.getBody(), now);
+        if (updated == 0) throwMissingComment(postId, commentId);
 
-        //retrieve comment by id
-        Comment currectComment = getCommentById(commentId);
+        postRepository.touch(List.of(postId), now);
+        eventPublisher.publishEvent(new CommentChangedEvent(postId));
 
-        if (!currectComment.getPost().getId().equals(currentPost.getId())) {
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
-        }
-
-        currectComment.setName(commentDto.getName());
-        currectComment.setBody(commentDto.getBody());
-        currectComment.setEmail(commentDto.getEmail());
-
-        return commentRepository.save(currectComment);
+        //the row now holds exactly the request values, there is nothing to read back
+        Comment updatedComment = mapToComment(commentDto);
+        updatedComment.setId(commentId);
+        return updatedComment;
     }
 
     @Override
     @Transactional
-    public void deleteComment(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException {
-        //retrieve post entity by id
-        Post currentPost = getPostById(postId);
+    public Comment deleteComment(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException {
+        //the deleted comment is returned to the caller, so it is read once before the delete
+        Comment comment = getCommentById(postId, commentId);
 
+        //a concurrent delete of the same comment leaves nothing to delete here
+        int deleted = commentRepository.deleteByIdAndPostId(commentId, postId);
+        if (deleted == 0) throw new ResourceNotFoundException("Comment", "ID", commentId);
 
-        //retrieve comment by id
-        Comment currectComment = getCommentById(commentId);
+        postRepository.adjustCommentCount(postId, -1, Instant.now());
+        eventPublisher.publishEvent(new CommentChangedEvent(postId));
 
-        if (!currectComment.getPost().getId().equals(currentPost.getId())) {
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
-        }
-
-        commentRepository.delete(currectComment);
+        return comment;
     }
 
 
-    private Post getPostById(Long postId) throws ResourceNotFoundException {
-        Optional<Post> post = postRepository.findById(postId);
-        if (post.isEmpty()) throw new ResourceNotFoundException("Post", "ID", postId);
-        return post.get();
+    //Runs only after a scoped read or write missed, to tell a missing post or comment
+    //from a comment that belongs to another post
+    private void throwMissingComment(Long postId, Long commentId) throws ResourceNotFoundException, BlogAPIException {
+        if (!postRepository.existsById(postId)) throw new ResourceNotFoundException("Post", "ID", postId);
+        if (!commentRepository.existsById(commentId)) throw new ResourceNotFoundException("Comment", "ID", commentId);
+        throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
     }
 
 
-    private Comment getCommentById(Long commentId) throws ResourceNotFoundException {
-        Optional<Comment> comment = commentRepository.findById(commentId);
-        if (comment.isEmpty()) throw new ResourceNotFoundException("Comment", "ID", commentId);
-        return comment.get();
+    private Map<Integer, Long> createCommentsChunk(List<CommentImportDto> commentDtos, List<Integer> chunk) {
+        Map<Integer, Comment> comments = new LinkedHashMap<>();
+        Map<Long, Integer> addedPerPost = new HashMap<>();
+        for (Integer index : chunk) {
+            CommentImportDto commentDto = commentDtos.get(index);
+            addedPerPost.merge(commentDto.getPostId(), 1, Integer::sum);
+
+            Comment comment = mapToComment(commentDto);
+            comment.setId(null);
+            //a reference is enough to set the foreign key, the post was checked already
+            comment.setPost(postRepository.getReferenceById(commentDto.getPostId()));
+            comments.put(index, comment);
+        }
+
+        //inserts are sent in jdbc batches on flush, clearing keeps the persistence context small
+        commentRepository.saveAllAndFlush(comments.values());
+        //one counter update per post of the chunk, not per comment
+        Instant now = Instant.now();
+        addedPerPost.forEach((postId, added) -> {
+            postRepository.adjustCommentCount(postId, added, now);
+            eventPublisher.publishEvent(new CommentChangedEvent(postId));
+        });
+        entityManager.clear();
+
+        Map<Integer, Long> createdIds = new LinkedHashMap<>();
+        comments.forEach((index, comment) -> createdIds.put(index, comment.getId()));
+        return createdIds;
     }
 
+    private String validateComment(CommentImportDto commentDto, Set<Long> existingPostIds) {
+        if (commentDto == null) {
+            return "Comment cannot be null";
+        }
+
+        Set<ConstraintViolation<CommentImportDto>> violations = validator.validate(commentDto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+
+        if (!existingPostIds.contains(commentDto.getPostId())) {
+            return "Post not found with ID : '" + commentDto.getPostId() + "'";
+        }
+        return null;
+    }
 
     private Comment mapToComment(CommentDto commentDto) {
-        Comment comment = mapper.map(commentDto, Comment.class);
+        Comment comment = mapper.toEntity(commentDto);
 
         return comment;
     }
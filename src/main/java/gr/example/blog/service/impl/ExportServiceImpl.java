@@ -0,0 +1,207 @@
+package gr.example.blog.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.example.blog.dto.ExportFormat;
+import gr.example.blog.dto.PostExportRow;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private final PostRepository postRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkRows;
+
+    @Autowired
+    public ExportServiceImpl(PostRepository postRepository, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${app.export.chunk-rows}") int chunkRows,
+                             @Value("${app.export.chunk-timeout-seconds}") int chunkTimeoutSeconds) {
+        this.postRepository = postRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.transactionTemplate.setTimeout(chunkTimeoutSeconds);
+        this.objectMapper = objectMapper;
+        this.chunkRows = chunkRows;
+    }
+
+    //Rows of posts and their comments are read in chunks of a fixed number of rows, seeking past the
+    //(post id, comment id) of the last row, each chunk in a short read only transaction of its own, and
+    //written once the transaction is over. A slow client never holds a pooled connection, memory is
+    //bounded by the chunk size however many comments a post has. Posts and comments changed during an
+    //export show up as of their own chunk
+    @Override
+    public void exportPosts(OutputStream outputStream, ExportFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        RowWriter rowWriter = format == ExportFormat.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        rowWriter.writeHeader();
+
+        Long currentPostId = null;
+        List<PostExportRow> rows = readChunk(0L, null);
+        while (!rows.isEmpty()) {
+            currentPostId = writeRows(rows, currentPostId, rowWriter);
+            writer.flush();
+
+            PostExportRow last = rows.get(rows.size() - 1);
+            rows = readChunk(last.getPostId(), last.getCommentId());
+        }
+
+        writer.flush();
+    }
+
+    private List<PostExportRow> readChunk(Long afterPostId, Long afterCommentId) {
+        return transactionTemplate.execute(status ->
+                postRepository.findExportRowsAfter(afterPostId, afterCommentId, PageRequest.of(0, chunkRows)));
+    }
+
+    //rows come ordered by post and comment, a post is written when its first row shows up,
+    //which may have been in an earlier chunk. Returns the post written last
+    private Long writeRows(List<PostExportRow> rows, Long currentPostId, RowWriter rowWriter) throws IOException {
+        for (PostExportRow row : rows) {
+            if (!Objects.equals(row.getPostId(), currentPostId)) {
+                rowWriter.writePost(row);
+                currentPostId = row.getPostId();
+            }
+            if (row.getCommentId() != null) {
+                rowWriter.writeComment(row);
+            }
+        }
+        return currentPostId;
+    }
+
+
+    private interface RowWriter {
+
+        void writeHeader() throws IOException;
+
+        void writePost(PostExportRow row) throws IOException;
+
+        void writeComment(PostExportRow row) throws IOException;
+    }
+
+
+    private class NdjsonRowWriter implements RowWriter {
+
+        private final Writer writer;
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.setRootValueSeparator(null);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void writeHeader() {
+        }
+
+        @Override
+        public void writePost(PostExportRow row) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "post");
+            writeNumberField("id", row.getPostId());
+            generator.writeStringField("title", row.getTitle());
+            generator.writeStringField("description", row.getDescription());
+            generator.writeStringField("content", row.getContent());
+            writeNumberField("categoryId", row.getCategoryId());
+            endLine();
+        }
+
+        @Override
+        public void writeComment(PostExportRow row) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("type", "comment");
+            writeNumberField("id", row.getCommentId());
+            writeNumberField("postId", row.getPostId());
+            generator.writeStringField("name", row.getCommentName());
+            generator.writeStringField("email", row.getCommentEmail());
+            generator.writeStringField("body", row.getCommentBody());
+            endLine();
+        }
+
+        private void writeNumberField(String name, Long value) throws IOException {
+            if (value == null) {
+                generator.writeNullField(name);
+            } else {
+                generator.writeNumberField(name, value);
+            }
+        }
+
+        private void endLine() throws IOException {
+            generator.writeEndObject();
+            generator.flush();
+            writer.write('\n');
+        }
+    }
+
+
+    private static class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            writer.write("type,post_id,comment_id,title,description,content,category_id,name,email,body\n");
+        }
+
+        @Override
+        public void writePost(PostExportRow row) throws IOException {
+            writeLine("post", row.getPostId(), null, row.getTitle(), row.getDescription(), row.getContent(),
+                    row.getCategoryId(), null, null, null);
+        }
+
+        @Override
+        public void writeComment(PostExportRow row) throws IOException {
+            writeLine("comment", row.getPostId(), row.getCommentId(), null, null, null,
+                    null, row.getCommentName(), row.getCommentEmail(), row.getCommentBody());
+        }
+
+        private void writeLine(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writer.write(escape(values[i].toString()));
+                }
+            }
+            writer.write('\n');
+        }
+
+        //quote values that contain separators, quotes or line breaks (RFC 4180)
+        private String escape(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
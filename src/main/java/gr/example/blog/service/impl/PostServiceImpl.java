@@ -1,41 +1,92 @@
 package gr.example.blog.service.impl;
 
+import gr.example.blog.dto.BulkImportResponse;
+import gr.example.blog.dto.BulkItemResult;
+import gr.example.blog.dto.PostCursorResponse;
 import gr.example.blog.dto.PostDto;
 import gr.example.blog.dto.PostResponse;
+import gr.example.blog.dto.PostSearchResponse;
+import gr.example.blog.dto.PostSummaryDto;
+import gr.example.blog.mapper.PostMapper;
 import gr.example.blog.model.Category;
 import gr.example.blog.model.Post;
 import gr.example.blog.repository.CategoryRepository;
 import gr.example.blog.repository.PostRepository;
+import gr.example.blog.search.PostSearchIndex;
 import gr.example.blog.service.PostService;
+import gr.example.blog.service.event.PostChangedEvent;
+import gr.example.blog.service.exception.BlogAPIException;
 import gr.example.blog.service.exception.ResourceNotFoundException;
-import org.modelmapper.ModelMapper;
+import gr.example.blog.service.util.AppConstants;
+import gr.example.blog.service.util.CursorCodec;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
 @Service
 public class PostServiceImpl implements PostService {
 
+    private static final String NEXT_PAGE = "n";
+    private static final String PREV_PAGE = "p";
+
     private final PostRepository postRepository;
 
     private final CategoryRepository categoryRepository;
 
-    private final ModelMapper mapper;
+    private final PostMapper mapper;
+
+    private final EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final PostSearchIndex postSearchIndex;
 
     @Autowired
-    public  PostServiceImpl(PostRepository postRepository, CategoryRepository categoryRepository, ModelMapper mapper){
+    public  PostServiceImpl(PostRepository postRepository, CategoryRepository categoryRepository, PostMapper mapper,
+                            EntityManager entityManager, PlatformTransactionManager transactionManager,
+                            Validator validator, ApplicationEventPublisher eventPublisher,
+                            PostSearchIndex postSearchIndex){
         this.postRepository = postRepository;
         this.categoryRepository = categoryRepository;
         this.mapper = mapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.postSearchIndex = postSearchIndex;
     }
 
     @Override
@@ -47,26 +98,85 @@ public class PostServiceImpl implements PostService {
         Category category = categoryOpt.get();
 
         Post  post = mapToPost(postDto);
+        post.setId(null);
         post.setCategory(category);
-        return  postRepository.save(post);
+        Post savedPost = postRepository.save(post);
+        eventPublisher.publishEvent(PostChangedEvent.saved(savedPost));
+        return savedPost;
     }
 
 
     @Override
+    public BulkImportResponse createPosts(List<PostDto> postDtos) {
+        if (postDtos.size() > AppConstants.MAX_BULK_SIZE) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "At most " + AppConstants.MAX_BULK_SIZE + " posts can be imported per request");
+        }
+
+        BulkItemResult[] results = new BulkItemResult[postDtos.size()];
+
+        //resolve every referenced category with a single query
+        Set<Long> categoryIds = postDtos.stream()
+                .map(PostDto::getCategoryId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingCategoryIds = categoryIds.isEmpty() ? Set.of()
+                : categoryRepository.findExistingIds(categoryIds);
+
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < postDtos.size(); i++) {
+            String error = validatePost(postDtos.get(i), existingCategoryIds);
+            if (error != null) {
+                results[i] = BulkItemResult.failed(i, error);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        //every chunk is written in its own transaction, a failing chunk does not undo the others.
+        //Titles count as taken only once their chunk commits, a rolled back chunk leaves them free
+        Set<String> seenTitles = new HashSet<>();
+        for (int from = 0; from < validIndexes.size(); from += AppConstants.BULK_CHUNK_SIZE) {
+            List<Integer> chunk = validIndexes.subList(from,
+                    Math.min(from + AppConstants.BULK_CHUNK_SIZE, validIndexes.size()));
+            Set<String> chunkTitles = new HashSet<>();
+            try {
+                Map<Integer, Long> createdIds = transactionTemplate.execute(status ->
+                        createPostsChunk(postDtos, chunk, seenTitles, chunkTitles, results));
+                createdIds.forEach((index, id) -> results[index] = BulkItemResult.created(index, id));
+                seenTitles.addAll(chunkTitles);
+            } catch (DataAccessException | TransactionException ex) {
+                for (Integer index : chunk) {
+                    if (results[index] == null) {
+                        results[index] = BulkItemResult.failed(index, "Batch could not be written");
+                    }
+                }
+            }
+        }
+
+        List<BulkItemResult> resultList = Arrays.asList(results);
+        int created = (int) resultList.stream().filter(result -> BulkItemResult.CREATED.equals(result.getStatus())).count();
+
+        return new BulkImportResponse(created, resultList.size() - created, resultList);
+    }
+
+
+    @Override
+    @Transactional(readOnly = true)
     public PostResponse getAllPosts(int page, int size, String sortBy, String sortDir) {
 
+        validateSortField(sortBy);
+
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending()
                 : Sort.by(sortBy).descending();
 
         //create pageable
         Pageable pageable = PageRequest.of(page, size, sort);
 
-        Page<Post> posts = postRepository.findAll(pageable);
+        Page<PostSummaryDto> posts = postRepository.findAllSummaries(pageable);
 
         //get content for page object
-        List<Post> listOfPosts = posts.getContent();
-
-        List<PostDto> content= listOfPosts.stream().map(post -> mapToDTO(post)).collect(Collectors.toList());
+        List<PostSummaryDto> content = posts.getContent();
 
         PostResponse postResponse = new PostResponse();
         postResponse.setContent(content);
@@ -80,8 +190,93 @@ public class PostServiceImpl implements PostService {
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public PostCursorResponse getPostsByCursor(String cursor, int size, String sortBy, String sortDir) {
+        return getPostsPage(null, cursor, size, sortBy, sortDir);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PostCursorResponse getPostsByCategory(Long categoryId, String cursor, int size, String sortBy,
+                                                 String sortDir) throws ResourceNotFoundException {
+        PostCursorResponse postCursorResponse = getPostsPage(categoryId, cursor, size, sortBy, sortDir);
+
+        //only an empty first page has to tell a missing category from an empty one
+        if (postCursorResponse.getContent().isEmpty() && !StringUtils.hasText(cursor)
+                && !categoryRepository.existsById(categoryId)) {
+            throw new ResourceNotFoundException("Category", "ID", categoryId);
+        }
+
+        return postCursorResponse;
+    }
+
+    //posts of all categories when categoryId is null
+    private PostCursorResponse getPostsPage(Long categoryId, String cursor, int size, String sortBy, String sortDir) {
+
+        //the cursor carries its own sort, so following it always continues the same ordering
+        boolean forward = true;
+        Long lastId = null;
+        String lastTitle = null;
+        if (StringUtils.hasText(cursor)) {
+            String[] parts = CursorCodec.decode(cursor, 5);
+            forward = NEXT_PAGE.equals(parts[0]);
+            sortBy = parts[1];
+            sortDir = parts[2];
+            lastId = CursorCodec.decodeId(parts[3]);
+            lastTitle = parts[4];
+        }
+
+        validateSortField(sortBy);
+
+        Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC
+                : Sort.Direction.DESC;
+
+        //a previous page is read in the opposite direction and flipped afterwards
+        Sort.Direction readDirection = forward ? direction
+                : (direction == Sort.Direction.ASC ? Sort.Direction.DESC : Sort.Direction.ASC);
+
+        //id breaks ties so that the (sort key, id) position is unique
+        Sort sort = sortBy.equals("id") ? Sort.by(readDirection, "id") : Sort.by(readDirection, sortBy, "id");
+        Pageable pageable = PageRequest.of(0, Math.min(Math.max(size, 1), AppConstants.MAX_PAGE_SIZE), sort);
+
+        boolean seekGreater = readDirection == Sort.Direction.ASC;
+        Slice<PostSummaryDto> slice = categoryId == null
+                ? findSummaries(sortBy, seekGreater, lastId, lastTitle, pageable)
+                : findSummariesByCategoryId(categoryId, sortBy, seekGreater, lastId, lastTitle, pageable);
+
+        List<PostSummaryDto> posts = new ArrayList<>(slice.getContent());
+        if (!forward) {
+            Collections.reverse(posts);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!posts.isEmpty()) {
+            //coming back from a later page means there is always a next one
+            boolean hasNext = !forward || slice.hasNext();
+            boolean hasPrev = forward ? lastId != null : slice.hasNext();
+
+            if (hasNext) {
+                nextCursor = encodeCursor(NEXT_PAGE, sortBy, direction, posts.get(posts.size() - 1));
+            }
+            if (hasPrev) {
+                prevCursor = encodeCursor(PREV_PAGE, sortBy, direction, posts.get(0));
+            }
+        }
+
+        PostCursorResponse postCursorResponse = new PostCursorResponse();
+        postCursorResponse.setContent(posts);
+        postCursorResponse.setSize(posts.size());
+        postCursorResponse.setNextCursor(nextCursor);
+        postCursorResponse.setPrevCursor(prevCursor);
+
+        return postCursorResponse;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Post getPostById(Long id) throws ResourceNotFoundException {
-        Optional<Post> post = postRepository.findById(id);
+        Optional<Post> post = postRepository.findWithCommentsById(id);
         if (post.isEmpty()) throw new ResourceNotFoundException("Post", "Id", id);
         return post.get();
     }
@@ -90,6 +285,7 @@ public class PostServiceImpl implements PostService {
     @Transactional
     public Post updatePost(PostDto postDto) throws ResourceNotFoundException {
 
+        //the comments are not needed to change the post, the response loads them in one batch
         Optional<Post> postOpt = postRepository.findById(postDto.getId());
         if (postOpt.isEmpty()) throw new ResourceNotFoundException("Post", "Id", postDto.getId());
         Post post = postOpt.get();
@@ -103,7 +299,11 @@ public class PostServiceImpl implements PostService {
         post.setContent(postDto.getContent());
         post.setCategory(category);
 
-        return postRepository.save(post);
+        Post savedPost = postRepository.save(post);
+        //the etag version is raised in place, like the comment writes raise it
+        postRepository.touch(List.of(savedPost.getId()), Instant.now());
+        eventPublisher.publishEvent(PostChangedEvent.saved(savedPost));
+        return savedPost;
     }
 
     @Override
@@ -112,31 +312,113 @@ public class PostServiceImpl implements PostService {
         Optional<Post> post = postRepository.findById(id);
         if (post.isEmpty()) throw new ResourceNotFoundException("Post", "Id", id);
         postRepository.deleteById(id);
+        eventPublisher.publishEvent(PostChangedEvent.deleted(id));
     }
 
+
     @Override
-    public List<Post> getPostsByCategory(Long categoryId) throws ResourceNotFoundException {
-        Optional<Category> categoryOpt = categoryRepository.findById(categoryId);
-        if (categoryOpt.isEmpty()) throw new ResourceNotFoundException("Category", "ID", categoryId);
+    public PostSearchResponse searchPosts(String query, int page, int size) {
+        if (!StringUtils.hasText(query)) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Search query cannot be empty");
+        }
 
-        List<Post> posts = postRepository.findPostByCategoryId(categoryId);
-        return posts;
+        return postSearchIndex.search(query.trim(), Math.max(page, 0),
+                Math.min(Math.max(size, 1), AppConstants.MAX_PAGE_SIZE));
     }
 
 
-    private Post mapToPost(PostDto postDto) {
-        Post post = mapper.map(postDto, Post.class);
+    private Slice<PostSummaryDto> findSummaries(String sortBy, boolean seekGreater, Long lastId, String lastTitle,
+                                                Pageable pageable) {
+        if (lastId == null) {
+            return postRepository.findSummaries(pageable);
+        } else if (sortBy.equals("id")) {
+            return seekGreater ? postRepository.findSummariesAfterId(lastId, pageable)
+                    : postRepository.findSummariesBeforeId(lastId, pageable);
+        } else {
+            return seekGreater ? postRepository.findSummariesAfterTitle(lastTitle, lastId, pageable)
+                    : postRepository.findSummariesBeforeTitle(lastTitle, lastId, pageable);
+        }
+    }
 
-        return post;
+    private Slice<PostSummaryDto> findSummariesByCategoryId(Long categoryId, String sortBy, boolean seekGreater,
+                                                            Long lastId, String lastTitle, Pageable pageable) {
+        if (lastId == null) {
+            return postRepository.findSummariesByCategoryId(categoryId, pageable);
+        } else if (sortBy.equals("id")) {
+            return seekGreater ? postRepository.findSummariesByCategoryIdAfterId(categoryId, lastId, pageable)
+                    : postRepository.findSummariesByCategoryIdBeforeId(categoryId, lastId, pageable);
+        } else {
+            return seekGreater
+                    ? postRepository.findSummariesByCategoryIdAfterTitle(categoryId, lastTitle, lastId, pageable)
+                    : postRepository.findSummariesByCategoryIdBeforeTitle(categoryId, lastTitle, lastId, pageable);
+        }
+    }
+
+    private Map<Integer, Long> createPostsChunk(List<PostDto> postDtos, List<Integer> chunk, Set<String> seenTitles,
+                                                Set<String> chunkTitles, BulkItemResult[] results) {
+        List<String> titles = chunk.stream().map(index -> postDtos.get(index).getTitle()).toList();
+        Set<String> existingTitles = postRepository.findExistingTitles(titles);
+
+        Map<Integer, Post> posts = new LinkedHashMap<>();
+        for (Integer index : chunk) {
+            PostDto postDto = postDtos.get(index);
+            if (existingTitles.contains(postDto.getTitle()) || seenTitles.contains(postDto.getTitle())
+                    || !chunkTitles.add(postDto.getTitle())) {
+                results[index] = BulkItemResult.failed(index, "Title already exists");
+                continue;
+            }
+
+            Post post = mapToPost(postDto);
+            post.setId(null);
+            //a reference is enough to set the foreign key, the category was checked already
+            post.setCategory(categoryRepository.getReferenceById(postDto.getCategoryId()));
+            posts.put(index, post);
+        }
+
+        //inserts are sent in jdbc batches on flush, clearing keeps the persistence context small
+        postRepository.saveAllAndFlush(posts.values());
+        //the index picks the posts up only if the chunk commits
+        posts.values().forEach(post -> eventPublisher.publishEvent(PostChangedEvent.saved(post)));
+        entityManager.clear();
+
+        Map<Integer, Long> createdIds = new LinkedHashMap<>();
+        posts.forEach((index, post) -> createdIds.put(index, post.getId()));
+        return createdIds;
     }
 
-    private PostDto mapToDTO(Post post){
-        PostDto postDto = mapper.map(post, PostDto.class);
-//        PostDto postDto = new PostDto();
-//        postDto.setId(post.getId());
-//        postDto.setTitle(post.getTitle());
-//        postDto.setDescription(post.getDescription());
-//        postDto.setContent(post.getContent());
-        return postDto;
+    private String validatePost(PostDto postDto, Set<Long> existingCategoryIds) {
+        if (postDto == null) {
+            return "Post cannot be null";
+        }
+
+        Set<ConstraintViolation<PostDto>> violations = validator.validate(postDto);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+
+        if (postDto.getCategoryId() == null || !existingCategoryIds.contains(postDto.getCategoryId())) {
+            return "Category not found with ID : '" + postDto.getCategoryId() + "'";
+        }
+        return null;
+    }
+
+    private void validateSortField(String sortBy) {
+        if (!AppConstants.POST_SORT_FIELDS.contains(sortBy)) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Posts cannot be sorted by " + sortBy);
+        }
+    }
+
+    private String encodeCursor(String page, String sortBy, Sort.Direction direction, PostSummaryDto post) {
+        String title = sortBy.equals("title") ? post.getTitle() : "";
+        return CursorCodec.encode(page, sortBy, direction.name(), String.valueOf(post.getId()), title);
+    }
+
+    private Post mapToPost(PostDto postDto) {
+        Post post = mapper.toEntity(postDto);
+
+        return post;
     }
 }
@@ -1,6 +1,7 @@
 package gr.example.blog.service.util;
 
 import javax.swing.plaf.PanelUI;
+import java.util.List;
 
 public class AppConstants {
 
@@ -10,4 +11,16 @@ public class AppConstants {
 
     public static final String DEFAULT_SORT_DIRECTION = "asc";
 
+    public static final String DEFAULT_COMMENT_PAGE_SIZE = "50";
+
+    public static final int MAX_PAGE_SIZE = 100;
+
+    public static final int MAX_BULK_SIZE = 10000;
+
+    //items written per transaction by the bulk imports
+    public static final int BULK_CHUNK_SIZE = 500;
+
+    //posts can only be sorted by columns that have an index behind them
+    public static final List<String> POST_SORT_FIELDS = List.of("id", "title");
+
 }
@@ -0,0 +1,47 @@
+package gr.example.blog.service.util;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+//Loads missing cache values outside of the cache's own locks.
+//Caffeine computes a missing value while holding a lock of its map, a load that waits on the
+//database would pin the carrier of a virtual thread for the whole round trip. Here the first
+//caller loads on its own thread and concurrent callers of the same key wait for its result.
+//A key invalidated while it loads is not cached, the finished load never re-enters the cache
+public class CacheLoads {
+
+    private CacheLoads() {
+    }
+
+    public static <K, V> V get(AsyncCache<K, V> cache, K key, Function<K, V> loader) {
+        //the lookup through the cache records the hit or miss in its statistics
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> existing = cache.getIfPresent(key);
+        if (existing == null) {
+            existing = cache.asMap().putIfAbsent(key, loading);
+        }
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+
+        //a null value or a failure removes the entry again, so the next caller retries the load
+        try {
+            V value = loader.apply(key);
+            loading.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            loading.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+}
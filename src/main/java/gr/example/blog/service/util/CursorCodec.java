@@ -0,0 +1,44 @@
+package gr.example.blog.service.util;
+
+import gr.example.blog.service.exception.BlogAPIException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+//Encodes the position of a keyset page into an opaque, url safe cursor.
+//The last part may contain the separator, so free text values go last
+public class CursorCodec {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(String... parts) {
+        String joined = String.join(SEPARATOR, parts);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String joined = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = joined.split("\\|", expectedParts);
+            if (parts.length != expectedParts) {
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException ex) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    public static Long decodeId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException ex) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+}
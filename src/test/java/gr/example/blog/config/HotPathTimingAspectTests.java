@@ -0,0 +1,95 @@
+package gr.example.blog.config;
+
+import gr.example.blog.mapper.CommentMapper;
+import gr.example.blog.mapper.CommentMapperImpl;
+import gr.example.blog.mapper.PostMapper;
+import gr.example.blog.mapper.PostMapperImpl;
+import gr.example.blog.model.Comment;
+import gr.example.blog.model.Post;
+import gr.example.blog.security.JwtTokenProvider;
+import gr.example.blog.service.exception.BlogAPIException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotPathTimingAspectTests {
+
+    private static final String SECRET = "80c92cdcf80ee8017b7dfb97cc37dd656e3ab632b9dafe407feda58ea538ce95";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new JwtTokenProvider(SECRET, 60_000L, 10));
+        proxyFactory.addAspect(new HotPathTimingAspect(meterRegistry));
+        jwtTokenProvider = proxyFactory.getProxy();
+    }
+
+    @Test
+    void callsOfAMethodShareOneTimer() {
+        for (int i = 0; i < 3; i++) {
+            jwtTokenProvider.generateToken(new UsernamePasswordAuthenticationToken("alice@example.com", null,
+                    AuthorityUtils.createAuthorityList("ROLE_USER")));
+        }
+
+        Timer timer = meterRegistry.get("blog.hot_path")
+                .tag("layer", "jwt")
+                .tag("class", "JwtTokenProvider")
+                .tag("method", "generateToken")
+                .tag("outcome", "success")
+                .timer();
+        assertThat(timer.count()).isEqualTo(3);
+        assertThat(meterRegistry.find("blog.hot_path").timers()).hasSize(1);
+    }
+
+    @Test
+    void failedCallsAreTimedApart() {
+        assertThatThrownBy(() -> jwtTokenProvider.getClaims("not-a-token")).isInstanceOf(BlogAPIException.class);
+
+        assertThat(meterRegistry.get("blog.hot_path")
+                .tag("method", "getClaims")
+                .tag("outcome", "error")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void mappersUsedByAnotherMapperAreNotTimedOnTheirOwn() {
+        CommentMapper commentMapper = proxy(new CommentMapperImpl());
+        PostMapperImpl postMapperImpl = new PostMapperImpl();
+        ReflectionTestUtils.setField(postMapperImpl, "commentMapper", commentMapper);
+        PostMapper postMapper = proxy(postMapperImpl);
+
+        Post post = new Post();
+        for (long id = 1; id <= 3; id++) {
+            Comment comment = new Comment();
+            comment.setId(id);
+            comment.setPost(post);
+            post.getComments().add(comment);
+        }
+
+        assertThat(postMapper.toDto(post).getComments()).hasSize(3);
+        commentMapper.toDto(new Comment());
+
+        assertThat(meterRegistry.get("blog.hot_path").tag("layer", "mapper").tag("class", "PostMapper")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("blog.hot_path").tag("layer", "mapper").tag("class", "CommentMapper")
+                .timer().count()).isEqualTo(1);
+    }
+
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.addAspect(new HotPathTimingAspect(meterRegistry));
+        return proxyFactory.getProxy();
+    }
+}
@@ -0,0 +1,88 @@
+package gr.example.blog.config;
+
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.PostRepository;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.sequence.NoSequenceSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+//Rows written before the move to sequences keep their ids, the sequences must start after them.
+//The statements on the sequences commit on their own, so nothing runs in a test transaction
+@DataJpaTest
+@Import(IdSequenceInitializer.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdSequenceInitializerTests {
+
+    @Autowired
+    private IdSequenceInitializer idSequenceInitializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from posts");
+    }
+
+    @Test
+    void newPostsGetIdsAfterTheExistingOnes() {
+        legacyPost(1000L);
+
+        idSequenceInitializer.afterSingletonsInstantiated();
+
+        Post post = new Post();
+        post.setTitle("New");
+        post.setDescription("Description");
+        post.setContent("Content");
+        assertThat(postRepository.save(post).getId()).isGreaterThan(1000L);
+    }
+
+    @Test
+    void aSequenceThatIsAheadIsNotMovedBack() {
+        legacyPost(10L);
+        jdbcTemplate.execute("alter sequence post_seq restart with 5000");
+
+        idSequenceInitializer.afterSingletonsInstantiated();
+
+        assertThat(jdbcTemplate.queryForObject("select next value for post_seq", Long.class))
+                .isGreaterThanOrEqualTo(5000L);
+    }
+
+    @Test
+    void sequenceTablesAreOnlyMovedForward() {
+        JdbcTemplate template = mock(JdbcTemplate.class);
+        Dialect dialect = mock(Dialect.class);
+        when(dialect.getSequenceSupport()).thenReturn(NoSequenceSupport.INSTANCE);
+        when(template.queryForObject("select max(id) from posts", Long.class)).thenReturn(1000L);
+
+        new IdSequenceInitializer(template, dialect).afterSingletonsInstantiated();
+
+        verify(template).queryForObject("select max(id) from posts", Long.class);
+        verify(template).update("update post_seq set next_val = ? where next_val < ?", 1050L, 1050L);
+        //no comments yet, the comment sequence stays as it is
+        verify(template).queryForObject("select max(id) from comments", Long.class);
+        verifyNoMoreInteractions(template);
+    }
+
+
+    private void legacyPost(long id) {
+        jdbcTemplate.update("insert into posts (id, title, description, content, comment_count, version) " +
+                "values (?, ?, 'Description', 'Content', 0, 0)", id, "Legacy " + id);
+    }
+}
@@ -0,0 +1,142 @@
+package gr.example.blog.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//In-memory databases stand in for the primary and two replicas, each one knows its own name
+class ReadWriteRoutingDataSourceTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+
+    @BeforeEach
+    void setUp() {
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(database("primary"),
+                List.of(database("replica-1"), database("replica-2")));
+        routingDataSource.bindTo(meterRegistry);
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.end();
+    }
+
+    @Test
+    void readOnlyTransactionsAlternateBetweenReplicas() {
+        assertThat(List.of(readOnly(), readOnly(), readOnly(), readOnly()))
+                .containsExactly("replica-1", "replica-2", "replica-1", "replica-2");
+    }
+
+    @Test
+    void readWriteTransactionsGoToPrimary() {
+        assertThat(readWrite()).isEqualTo("primary");
+    }
+
+    @Test
+    void statementsOutsideTransactionsGoToPrimary() {
+        assertThat(currentDatabase()).isEqualTo("primary");
+    }
+
+    @Test
+    void readsAfterAWriteOfTheSameRequestGoToPrimary() {
+        ReadYourWrites.begin(false);
+
+        assertThat(readOnly()).startsWith("replica");
+        readWrite();
+        assertThat(readOnly()).isEqualTo("primary");
+        assertThat(ReadYourWrites.end()).isTrue();
+    }
+
+    @Test
+    void readsOfARecentWriterGoToPrimary() {
+        ReadYourWrites.begin(true);
+
+        assertThat(readOnly()).isEqualTo("primary");
+        assertThat(ReadYourWrites.end()).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void cacheLoadsReadTheLatestWriteEvenWhenTheReplicasLag() {
+        //the replicas have not applied the rename yet
+        readWriteTransaction.executeWithoutResult(status ->
+                jdbcTemplate.update("update target set name = ?", "primary-renamed"));
+
+        assertThat(readOnly()).startsWith("replica");
+        try (ReadYourWrites.PrimaryScope primary = ReadYourWrites.pinToPrimary()) {
+            assertThat(readOnly()).isEqualTo("primary-renamed");
+        }
+        assertThat(readOnly()).startsWith("replica");
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    void primaryScopesNest() {
+        try (ReadYourWrites.PrimaryScope outer = ReadYourWrites.pinToPrimary()) {
+            try (ReadYourWrites.PrimaryScope inner = ReadYourWrites.pinToPrimary()) {
+                assertThat(readOnly()).isEqualTo("primary");
+            }
+            assertThat(readOnly()).isEqualTo("primary");
+        }
+        assertThat(ReadYourWrites.isPinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    void routedConnectionsAreCountedPerTarget() {
+        readOnly();
+        readOnly();
+        readOnly();
+
+        assertThat(meterRegistry.get("datasource.routing").tag("target", "replica-1").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("datasource.routing").tag("target", "replica-2").counter().count())
+                .isEqualTo(1);
+    }
+
+
+    private String readOnly() {
+        return readOnlyTransaction.execute(status -> currentDatabase());
+    }
+
+    private String readWrite() {
+        return readWriteTransaction.execute(status -> currentDatabase());
+    }
+
+    private String currentDatabase() {
+        return jdbcTemplate.queryForObject("select name from target", String.class);
+    }
+
+    private DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+
+        JdbcTemplate database = new JdbcTemplate(dataSource);
+        database.execute("create table if not exists target (name varchar(20))");
+        database.update("delete from target");
+        database.update("insert into target (name) values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,60 @@
+package gr.example.blog.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTests {
+
+    private final ReadYourWrites readYourWrites = new ReadYourWrites(5, 100);
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(readYourWrites);
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readsOfAUserThatWroteArePinned() throws Exception {
+        authenticate("alice");
+        assertThat(pinnedDuring(ReadYourWrites::recordWrite)).isFalse();
+        assertThat(pinnedDuring(() -> { })).isTrue();
+
+        authenticate("bob");
+        assertThat(pinnedDuring(() -> { })).isFalse();
+    }
+
+    @Test
+    void anonymousRequestsAreNeverPinned() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken("key",
+                "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+
+        assertThat(pinnedDuring(ReadYourWrites::recordWrite)).isFalse();
+        assertThat(pinnedDuring(() -> { })).isFalse();
+    }
+
+
+    //runs a request through the filter, returns whether its reads were pinned before the work ran
+    private boolean pinnedDuring(Runnable work) throws Exception {
+        AtomicBoolean pinned = new AtomicBoolean();
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+            pinned.set(ReadYourWrites.isPinnedToPrimary());
+            work.run();
+        });
+        return pinned.get();
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username,
+                null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+}
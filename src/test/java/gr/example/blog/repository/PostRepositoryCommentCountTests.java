@@ -0,0 +1,78 @@
+package gr.example.blog.repository;
+
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Comment;
+import gr.example.blog.model.Post;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//The stored comment count is changed in place and recounted from the comments table when it drifts
+@DataJpaTest
+class PostRepositoryCommentCountTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        entityManager.persist(category);
+
+        post = new Post();
+        post.setTitle("Post");
+        post.setDescription("Description");
+        post.setContent("Content");
+        post.setCategory(category);
+        entityManager.persist(post);
+
+        //comments written behind the back of the counter
+        for (int i = 0; i < 2; i++) {
+            Comment comment = new Comment();
+            comment.setName("Reader " + i);
+            comment.setEmail("reader" + i + "@example.com");
+            comment.setBody("Comment body " + i);
+            comment.setPost(post);
+            entityManager.persist(comment);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void adjustCommentCountChangesCountAndVersion() {
+        postRepository.adjustCommentCount(post.getId(), 1, Instant.now());
+        entityManager.clear();
+
+        Post found = postRepository.findById(post.getId()).orElseThrow();
+        assertThat(found.getCommentCount()).isEqualTo(1L);
+        assertThat(found.getVersion()).isEqualTo(post.getVersion() + 1);
+    }
+
+    @Test
+    void recountCommentsFixesDriftedPosts() {
+        List<Long> stale = postRepository.findIdsWithStaleCommentCount();
+        assertThat(stale).containsExactly(post.getId());
+
+        postRepository.recountComments(stale, Instant.now());
+        entityManager.clear();
+
+        assertThat(postRepository.findById(post.getId()).orElseThrow().getCommentCount()).isEqualTo(2L);
+        assertThat(postRepository.findIdsWithStaleCommentCount()).isEmpty();
+    }
+}
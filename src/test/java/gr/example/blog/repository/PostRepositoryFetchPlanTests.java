@@ -0,0 +1,150 @@
+package gr.example.blog.repository;
+
+import gr.example.blog.dto.PostSummaryDto;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Comment;
+import gr.example.blog.model.Post;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Every read use case must run a fixed number of statements, whatever the number of rows
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PostRepositoryFetchPlanTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    private Statistics statistics;
+
+    private Category category;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        entityManager.persist(category);
+
+        for (int i = 0; i < 5; i++) {
+            Post created = new Post();
+            created.setTitle("Post " + i);
+            created.setDescription("Description " + i);
+            created.setContent("Content " + i);
+            created.setCategory(category);
+            created.setCommentCount(3L);
+            entityManager.persist(created);
+
+            for (int j = 0; j < 3; j++) {
+                Comment comment = new Comment();
+                comment.setName("Reader " + j);
+                comment.setEmail("reader" + j + "@example.com");
+                comment.setBody("Comment body " + j);
+                comment.setPost(created);
+                entityManager.persist(comment);
+            }
+            post = created;
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getPostByIdLoadsCommentsInOneStatement() {
+        Post found = postRepository.findWithCommentsById(post.getId()).orElseThrow();
+
+        assertThat(found.getComments()).hasSize(3);
+        assertThat(found.getCategory().getId()).isEqualTo(category.getId());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllPostsRunsPageAndCountStatements() {
+        Page<PostSummaryDto> page = postRepository.findAllSummaries(PageRequest.of(0, 2, Sort.by("id")));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getContent()).allMatch(summary -> summary.getCommentCount() == 3);
+        assertThat(page.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getPostsByCursorRunsOneStatement() {
+        Slice<PostSummaryDto> slice = postRepository.findSummariesAfterId(0L, PageRequest.of(0, 2, Sort.by("id")));
+
+        assertThat(slice.getContent()).hasSize(2);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getPostsByCategoryRunsOneStatement() {
+        Slice<PostSummaryDto> posts = postRepository.findSummariesByCategoryIdAfterId(category.getId(), 0L,
+                PageRequest.of(0, 10, Sort.by("id")));
+
+        assertThat(posts.getContent()).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getCommentsByPostIdRunsOneStatement() {
+        Slice<Comment> comments = commentRepository.findByPostIdOrderByIdAsc(post.getId(), PageRequest.of(0, 2));
+
+        assertThat(comments.getContent()).hasSize(2);
+        assertThat(comments.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getCommentByIdChecksOwnershipInOneStatement() {
+        Long commentId = commentRepository.findByPostId(post.getId()).get(0).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        assertThat(commentRepository.findByIdAndPostId(commentId, post.getId())).isPresent();
+        assertThat(commentRepository.findByIdAndPostId(commentId, post.getId() - 1)).isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void updateAndDeleteCommentRunOneStatementEach() {
+        Long commentId = commentRepository.findByPostId(post.getId()).get(0).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        assertThat(commentRepository.updateByIdAndPostId(commentId, post.getId() - 1, "Other", "other@example.com",
+                "Other body", Instant.now())).isZero();
+        assertThat(commentRepository.updateByIdAndPostId(commentId, post.getId(), "Editor", "editor@example.com",
+                "Edited body", Instant.now())).isEqualTo(1);
+        assertThat(commentRepository.deleteByIdAndPostId(commentId, post.getId())).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+}
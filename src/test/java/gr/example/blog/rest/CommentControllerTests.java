@@ -0,0 +1,74 @@
+package gr.example.blog.rest;
+
+import gr.example.blog.dto.CommentResponse;
+import gr.example.blog.dto.ResourceVersion;
+import gr.example.blog.mapper.CommentMapper;
+import gr.example.blog.service.CommentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommentControllerTests {
+
+    private final CommentService commentService = mock(CommentService.class);
+
+    private final CommentController commentController = new CommentController(commentService,
+            mock(CommentMapper.class));
+
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(commentService.getCommentsVersion(1L))
+                .thenReturn(Optional.of(new ResourceVersion(7L, Instant.parse("2026-01-01T00:00:00Z"))));
+        when(commentService.getCommentsByPostId(any(), any(), anyInt()))
+                .thenReturn(new CommentResponse(List.of(), 0, null));
+    }
+
+    @Test
+    void everyPageOfTheCommentsHasItsOwnETag() {
+        String firstPage = eTag(null, 10);
+
+        assertThat(firstPage).isEqualTo("\"post-1-comments-7-first-10\"");
+        assertThat(eTag("bnwxMA", 10)).isEqualTo("\"post-1-comments-7-bnwxMA-10\"");
+        assertThat(eTag(null, 20)).isNotEqualTo(firstPage);
+    }
+
+    @Test
+    void theETagOfAnotherPageIsNotAMatch() {
+        String firstPage = eTag(null, 10);
+
+        assertThat(get("bnwxMA", 10, firstPage).getStatusCode().value()).isEqualTo(200);
+        assertThat(get(null, 10, firstPage)).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+    }
+
+
+    private ResponseEntity<CommentResponse> get(String cursor, int size, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts/1/comments");
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        response = new MockHttpServletResponse();
+        return commentController.getCommentsByPostId(1L, cursor, size, new ServletWebRequest(request, response));
+    }
+
+    private String eTag(String cursor, int size) {
+        get(cursor, size, null);
+        return response.getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,54 @@
+package gr.example.blog.rest;
+
+import gr.example.blog.dto.ExportFormat;
+import gr.example.blog.service.ExportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The export runs with a timeout of its own, the async timeout of other requests does not apply
+class ExportControllerTests {
+
+    private final ExportService exportService = mock(ExportService.class);
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ExportController(exportService, -1))
+            .setAsyncRequestTimeout(1_000)
+            .build();
+
+    @Test
+    void theExportIsStreamedWithoutATimeout() throws Exception {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write("csv\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(exportService).exportPosts(any(), eq(ExportFormat.CSV));
+
+        MvcResult result = mockMvc.perform(get("/api/export/posts").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(-1);
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"posts.csv\""))
+                .andExpect(content().string("csv\n"));
+    }
+}
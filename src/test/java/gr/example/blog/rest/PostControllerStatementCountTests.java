@@ -0,0 +1,186 @@
+package gr.example.blog.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.dto.PostResponse;
+import gr.example.blog.mapper.CommentMapperImpl;
+import gr.example.blog.mapper.PostMapper;
+import gr.example.blog.mapper.PostMapperImpl;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Comment;
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.CategoryRepository;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.search.PostSearchIndex;
+import gr.example.blog.service.PostService;
+import gr.example.blog.service.impl.PostServiceImpl;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Statements run per request of the post endpoints, from the controller down. Every call commits
+//on its own like a real request, and an entity manager stays open for the view like open-in-view
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({PostServiceImpl.class, PostMapperImpl.class, CommentMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostControllerStatementCountTests {
+
+    @MockBean
+    private PostSearchIndex postSearchIndex;
+
+    @MockBean
+    private Validator validator;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostMapper mapper;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private PostController postController;
+
+    private Statistics statistics;
+
+    private Category category;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        postController = new PostController(postService, mapper,
+                new PostResponseCache(postService, mapper, new ObjectMapper(), 1024 * 1024));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            category = new Category();
+            category.setName("Java");
+            category.setDescription("Posts about Java");
+            entityManager.persist(category);
+
+            for (int i = 0; i < 5; i++) {
+                Post created = new Post();
+                created.setTitle("Post " + i);
+                created.setDescription("Description " + i);
+                created.setContent("Content " + i);
+                created.setCategory(category);
+                created.setCommentCount(3L);
+                entityManager.persist(created);
+
+                for (int j = 0; j < 3; j++) {
+                    Comment comment = new Comment();
+                    comment.setName("Reader " + j);
+                    comment.setEmail("reader" + j + "@example.com");
+                    comment.setBody("Comment body " + j);
+                    comment.setPost(created);
+                    entityManager.persist(comment);
+                }
+                post = created;
+            }
+        });
+
+        //a cold second level cache, whatever the inserts left in it
+        entityManagerFactory.getCache().evictAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void getAllPostsRunsPageAndCountStatements() {
+        PostResponse posts = inRequest(() -> postController.getAllPost(0, 2, "id", "asc"));
+
+        assertThat(posts.getContent()).hasSize(2);
+        assertThat(posts.getTotalElements()).isEqualTo(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getPostByIdRunsOneStatementAndNoneOnceCached() {
+        ResponseEntity<byte[]> response = inRequest(() -> postController.getPostById(post.getId(), getRequest()));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        inRequest(() -> postController.getPostById(post.getId(), getRequest()));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void updatePostLoadsPostAndCategoryThenUpdatesAndMapsCommentsInOneBatch() {
+        PostDto postDto = new PostDto();
+        postDto.setTitle("Post 4 edited");
+        postDto.setDescription("Description edited");
+        postDto.setContent("Content edited");
+        postDto.setCategoryId(category.getId());
+
+        ResponseEntity<PostDto> response = inRequest(() -> postController.updatePost(postDto, post.getId(),
+                new BeanPropertyBindingResult(postDto, "postDto")));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getComments()).hasSize(3);
+        //select post, select category, update post, raise its version, select comments
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(5);
+    }
+
+
+    private ServletWebRequest getRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/api/posts/" + post.getId()));
+    }
+
+    //the entity manager of a request, bound the way the open-in-view interceptor binds it
+    private <T> T inRequest(Supplier<T> request) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            return request.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package gr.example.blog.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.example.blog.datasource.ReadYourWrites;
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.mapper.PostMapper;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Post;
+import gr.example.blog.service.PostService;
+import gr.example.blog.service.event.CategoryChangedEvent;
+import gr.example.blog.service.event.CommentChangedEvent;
+import gr.example.blog.service.event.PostChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//The post service stands in for a primary at version 2 and a replica still at version 1.
+//Posts 1 and 2 belong to category 10, post 3 to category 20
+class PostResponseCacheTests {
+
+    private final PostService postService = mock(PostService.class);
+    private final PostMapper mapper = mock(PostMapper.class);
+
+    private PostResponseCache postResponseCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(postService.getPostById(anyLong())).thenAnswer(invocation ->
+                post(invocation.getArgument(0), ReadYourWrites.isPinnedToPrimary() ? 2L : 1L));
+        when(mapper.toDto(any(Post.class))).thenAnswer(invocation -> {
+            Post post = invocation.getArgument(0);
+            PostDto postDto = new PostDto();
+            postDto.setId(post.getId());
+            postDto.setTitle(post.getTitle());
+            postDto.setCategoryId(post.getCategory().getId());
+            return postDto;
+        });
+
+        postResponseCache = new PostResponseCache(postService, mapper, new ObjectMapper(), 1024 * 1024);
+    }
+
+    @Test
+    void loadsAreReadFromThePrimary() {
+        //another client wrote the post, this request is not pinned on its own
+        ReadYourWrites.begin(false);
+        try {
+            assertThat(postResponseCache.get(1L).getVersion().getVersion()).isEqualTo(2L);
+        } finally {
+            ReadYourWrites.end();
+        }
+        assertThat(ReadYourWrites.isPinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    void postChangesEvictThePost() {
+        cacheAll();
+
+        postResponseCache.onPostChanged(PostChangedEvent.deleted(1L));
+
+        assertThat(postResponseCache.getCache().asMap()).containsOnlyKeys(2L, 3L);
+    }
+
+    @Test
+    void commentChangesEvictTheirPost() {
+        cacheAll();
+
+        postResponseCache.onCommentChanged(new CommentChangedEvent(2L));
+
+        assertThat(postResponseCache.getCache().asMap()).containsOnlyKeys(1L, 3L);
+    }
+
+    @Test
+    void categoryChangesEvictThePostsOfTheCategory() {
+        cacheAll();
+
+        postResponseCache.onCategoryChanged(new CategoryChangedEvent(10L));
+
+        assertThat(postResponseCache.getCache().asMap()).containsOnlyKeys(3L);
+    }
+
+    @Test
+    void eventsEvictOnlyOnceTheTransactionCommits() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(PostResponseCache.class, () -> postResponseCache);
+            context.register(TransactionConfig.class);
+            context.refresh();
+            TransactionTemplate transactionTemplate =
+                    new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            cacheAll();
+
+            transactionTemplate.executeWithoutResult(status -> {
+                context.publishEvent(new CommentChangedEvent(1L));
+                assertThat(postResponseCache.getCache().asMap()).containsKey(1L);
+            });
+            assertThat(postResponseCache.getCache().asMap()).doesNotContainKey(1L);
+
+            transactionTemplate.executeWithoutResult(status -> {
+                context.publishEvent(new CommentChangedEvent(2L));
+                status.setRollbackOnly();
+            });
+            assertThat(postResponseCache.getCache().asMap()).containsKey(2L);
+        }
+    }
+
+
+    private void cacheAll() {
+        for (long postId = 1; postId <= 3; postId++) {
+            postResponseCache.get(postId);
+        }
+        assertThat(postResponseCache.getCache().asMap()).containsOnlyKeys(1L, 2L, 3L);
+    }
+
+    private Post post(Long postId, Long version) {
+        Category category = new Category();
+        category.setId(postId < 3 ? 10L : 20L);
+
+        Post post = new Post();
+        post.setId(postId);
+        post.setTitle("title v" + version);
+        post.setVersion(version);
+        post.setUpdatedAt(Instant.now());
+        post.setCategory(category);
+        return post;
+    }
+
+
+    @Configuration
+    @EnableTransactionManagement
+    static class TransactionConfig {
+
+        //runs the transaction synchronizations without a resource behind them
+        @Bean
+        PlatformTransactionManager transactionManager() {
+            return new AbstractPlatformTransactionManager() {
+
+                @Override
+                protected Object doGetTransaction() {
+                    return new Object();
+                }
+
+                @Override
+                protected void doBegin(Object transaction, TransactionDefinition definition) {
+                }
+
+                @Override
+                protected void doCommit(DefaultTransactionStatus status) {
+                }
+
+                @Override
+                protected void doRollback(DefaultTransactionStatus status) {
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package gr.example.blog.search;
+
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.service.event.PostChangedEvent;
+import gr.example.blog.service.exception.BlogAPIException;
+import jakarta.persistence.EntityManager;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//The repository hands out the posts of a rebuild, the index lives in a temporary directory
+class PostSearchIndexTests {
+
+    private final PostRepository postRepository = mock(PostRepository.class);
+
+    @TempDir
+    Path indexDir;
+
+    private PostSearchIndex postSearchIndex;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        postSearchIndex = new PostSearchIndex(postRepository, mock(EntityManager.class), transactionManager,
+                indexDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        postSearchIndex.destroy();
+    }
+
+    @Test
+    void searchesDuringARebuildSeeTheIndexAsItWas() throws IOException {
+        when(postRepository.streamAllBy()).thenReturn(Stream.of(post(1L, "Lucene basics")));
+        postSearchIndex.rebuild();
+        assertThat(hits("lucene")).isEqualTo(1);
+
+        List<Long> hitsDuringRebuild = new ArrayList<>();
+        when(postRepository.streamAllBy()).thenReturn(Stream.of(post(2L, "Lucene internals"),
+                        post(3L, "More about lucene"))
+                .peek(post -> hitsDuringRebuild.add(hits("lucene"))));
+        postSearchIndex.rebuild();
+
+        assertThat(hitsDuringRebuild).containsExactly(1L, 1L);
+        assertThat(hits("lucene")).isEqualTo(2);
+    }
+
+    @Test
+    void updatesReachTheDiskWithTheNextCommit() throws IOException {
+        when(postRepository.streamAllBy()).thenReturn(Stream.empty());
+        postSearchIndex.rebuild();
+
+        postSearchIndex.onPostChanged(PostChangedEvent.saved(post(1L, "Committed later")));
+        assertThat(committedPosts()).isZero();
+
+        postSearchIndex.commit();
+        assertThat(committedPosts()).isEqualTo(1);
+    }
+
+    @Test
+    void changesDuringARebuildAreNotOverwrittenByIt() throws IOException {
+        when(postRepository.streamAllBy()).thenReturn(Stream.empty());
+        postSearchIndex.rebuild();
+
+        //the rebuild read post 2 before its deletion committed, the deletion arrives while it still runs
+        when(postRepository.streamAllBy()).thenReturn(Stream.of(post(1L, "Lucene basics"),
+                        post(2L, "Lucene internals"))
+                .peek(post -> {
+                    if (post.getId() == 1L) {
+                        postSearchIndex.onPostChanged(PostChangedEvent.deleted(2L));
+                    }
+                }));
+        postSearchIndex.rebuild();
+
+        assertThat(hits("lucene")).isEqualTo(1);
+        assertThat(hits("internals")).isZero();
+    }
+
+    @Test
+    void pagesBeyondTheSearchDepthAreRejectedWithoutOverflow() throws IOException {
+        when(postRepository.streamAllBy()).thenReturn(Stream.of(post(1L, "Lucene basics")));
+        postSearchIndex.rebuild();
+
+        //the page times the size is past the int range
+        assertThatThrownBy(() -> postSearchIndex.search("lucene", Integer.MAX_VALUE / 5, 10))
+                .isInstanceOf(BlogAPIException.class);
+    }
+
+
+    private long hits(String text) {
+        return postSearchIndex.search(text, 0, 10).getTotalElements();
+    }
+
+    private int committedPosts() throws IOException {
+        try (Directory directory = FSDirectory.open(indexDir);
+             DirectoryReader reader = DirectoryReader.open(directory)) {
+            return reader.numDocs();
+        }
+    }
+
+    private Post post(Long id, String title) {
+        Post post = new Post();
+        post.setId(id);
+        post.setTitle(title);
+        post.setDescription("Description of " + title);
+        post.setContent("Content of " + title);
+        return post;
+    }
+}
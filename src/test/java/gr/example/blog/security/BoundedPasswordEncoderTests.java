@@ -0,0 +1,123 @@
+package gr.example.blog.security;
+
+import gr.example.blog.controller.GlobalExceptionHandler;
+import gr.example.blog.dto.ErrorDetails;
+import gr.example.blog.model.User;
+import gr.example.blog.repository.UserRepository;
+import gr.example.blog.service.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//A full hashing pool turns further logins away with 503, and logins rehash weaker stored hashes
+class BoundedPasswordEncoderTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    void hashesAreComputedByTheDelegate() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 2, 1, meterRegistry);
+
+        String hash = passwordEncoder.encode("secret");
+
+        assertThat(passwordEncoder.matches("secret", hash)).isTrue();
+        assertThat(passwordEncoder.matches("wrong", hash)).isFalse();
+        assertThat(meterRegistry.get("auth.password.hash").tag("operation", "encode").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.password.hash").tag("operation", "matches").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void hashesBeyondTheQueueAreTurnedAwayWith503() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slowEncoder = mock(PasswordEncoder.class);
+        when(slowEncoder.encode(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        passwordEncoder = new BoundedPasswordEncoder(slowEncoder, 1, 1, 7, meterRegistry);
+
+        //one hash on the only thread and one in the queue
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("first"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("second"));
+        while (meterRegistry.get("auth.password.queue.size").gauge().value() < 1) {
+            Thread.sleep(10);
+        }
+
+        assertThatThrownBy(() -> passwordEncoder.encode("third"))
+                .isInstanceOfSatisfying(ServiceBusyException.class, ex -> {
+                    assertThat(ex.getRetryAfterSeconds()).isEqualTo(7);
+
+                    ResponseEntity<ErrorDetails> response = new GlobalExceptionHandler()
+                            .handleServiceBusy(ex, new ServletWebRequest(new MockHttpServletRequest()));
+                    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                    assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("7");
+                });
+        assertThat(meterRegistry.get("auth.password.rejected").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("hash");
+    }
+
+    @Test
+    void loginsRehashWeakerHashesWithoutRevokingTokens() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 2, 2, 1, meterRegistry);
+
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("secret"));
+        user.setRoles(new HashSet<>());
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenReturn(Optional.of(user));
+        when(userRepository.findByEmail("alice@example.com")).thenReturn(Optional.of(user));
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(userRepository, 100, 60);
+
+        DaoAuthenticationProvider authenticationProvider = new DaoAuthenticationProvider();
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setUserDetailsPasswordService(userDetailsService);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+
+        authenticationProvider.authenticate(new UsernamePasswordAuthenticationToken("alice", "secret"));
+
+        verify(userRepository).save(user);
+        assertThat(user.getPassword()).startsWith("$2a$05$");
+        assertThat(passwordEncoder.matches("secret", user.getPassword())).isTrue();
+        assertThat(user.getAuthVersion()).isZero();
+    }
+}
@@ -0,0 +1,85 @@
+package gr.example.blog.security;
+
+import gr.example.blog.model.Role;
+import gr.example.blog.model.User;
+import gr.example.blog.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//User details are read once per user, under both the username and the email, and handed out as copies
+class CustomUserDetailsServiceTests {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CustomUserDetailsService userDetailsService = new CustomUserDetailsService(userRepository, 100, 60);
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword("hash-1");
+        user.setRoles(new HashSet<>(Set.of(new Role(1L, "ROLE_USER"))));
+
+        when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenAnswer(invocation -> Optional.of(user));
+    }
+
+    @Test
+    void theUsernameAndTheEmailShareOneLookup() {
+        UserDetails byEmail = userDetailsService.loadUserByUsername("alice@example.com");
+        UserDetails byUsername = userDetailsService.loadUserByUsername("Alice");
+
+        verify(userRepository, times(1)).findByUsernameOrEmail(anyString(), anyString());
+        assertThat(byEmail.getUsername()).isEqualTo("alice@example.com");
+        assertThat(byUsername.getUsername()).isEqualTo("alice@example.com");
+        assertThat(byUsername.getPassword()).isEqualTo("hash-1");
+    }
+
+    @Test
+    void erasingTheReturnedCredentialsLeavesTheCacheIntact() {
+        BlogUserDetails first = (BlogUserDetails) userDetailsService.loadUserByUsername("alice");
+        first.eraseCredentials();
+
+        UserDetails second = userDetailsService.loadUserByUsername("alice");
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getPassword()).isEqualTo("hash-1");
+    }
+
+    @Test
+    void evictedUsersAreReadAgain() {
+        userDetailsService.loadUserByUsername("alice");
+
+        user.setPassword("hash-2");
+        userDetailsService.evict(user.getUsername(), user.getEmail());
+
+        assertThat(userDetailsService.loadUserByUsername("alice@example.com").getPassword()).isEqualTo("hash-2");
+        assertThat(userDetailsService.loadUserByUsername("alice").getPassword()).isEqualTo("hash-2");
+        verify(userRepository, times(2)).findByUsernameOrEmail(anyString(), anyString());
+    }
+
+    @Test
+    void unknownUsersAreNotCached() {
+        when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("bob"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThat(userDetailsService.getCache().estimatedSize()).isZero();
+    }
+}
@@ -0,0 +1,117 @@
+package gr.example.blog.security;
+
+import gr.example.blog.model.Role;
+import gr.example.blog.model.User;
+import gr.example.blog.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//A token stays usable until the password or the roles of its user change, in both auth modes.
+//The caches are evicted by hand, UserCacheEvictionListener does it after commit in the application
+class JwtAuthenticationFilterTests {
+
+    private static final String SECRET = "80c92cdcf80ee8017b7dfb97cc37dd656e3ab632b9dafe407feda58ea538ce95";
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(SECRET, 60_000L, 100);
+    private final CustomUserDetailsService userDetailsService = new CustomUserDetailsService(userRepository, 100, 60);
+    private final UserAuthVersions userAuthVersions = new UserAuthVersions(userRepository, 100, 60);
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword("hash-1");
+        user.setRoles(new HashSet<>(Set.of(new Role(1L, "ROLE_USER"))));
+
+        when(userRepository.findByUsernameOrEmail(anyString(), anyString())).thenAnswer(invocation -> Optional.of(user));
+        when(userRepository.findAuthVersionByEmail(anyString())).thenAnswer(invocation ->
+                Optional.of(user.getAuthVersion()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void tokensIssuedBeforeAPasswordChangeAreRejected(boolean statelessAuth) throws Exception {
+        String token = login();
+        assertThat(authenticate(token, statelessAuth)).isNotNull();
+
+        user.setPassword("hash-2");
+        evictCaches();
+
+        assertThat(authenticate(token, statelessAuth)).isNull();
+        assertThat(authenticate(login(), statelessAuth)).isNotNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void tokensIssuedBeforeARoleChangeAreRejected(boolean statelessAuth) throws Exception {
+        String token = login();
+
+        user.setRoles(new HashSet<>(Set.of(new Role(1L, "ROLE_USER"), new Role(2L, "ROLE_ADMIN"))));
+        evictCaches();
+
+        assertThat(authenticate(token, statelessAuth)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void rehashingThePasswordKeepsTokensValid(boolean statelessAuth) throws Exception {
+        String token = login();
+
+        user.rehashPassword("hash-1-stronger");
+        evictCaches();
+
+        assertThat(user.getAuthVersion()).isZero();
+        assertThat(authenticate(token, statelessAuth)).isNotNull();
+    }
+
+
+    private String login() {
+        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
+        return jwtTokenProvider.generateToken(new UsernamePasswordAuthenticationToken(userDetails, null,
+                userDetails.getAuthorities()));
+    }
+
+    private Authentication authenticate(String token, boolean statelessAuth) throws Exception {
+        SecurityContextHolder.clearContext();
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService, userAuthVersions, statelessAuth)
+                .doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    private void evictCaches() {
+        userDetailsService.evict(user.getUsername(), user.getEmail());
+        userAuthVersions.evict(user.getEmail());
+    }
+}
@@ -0,0 +1,78 @@
+package gr.example.blog.security;
+
+import gr.example.blog.service.exception.BlogAPIException;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//The verified token cache skips the signature check for known tokens, never past their expiration
+class JwtTokenProviderTests {
+
+    private static final String SECRET = "80c92cdcf80ee8017b7dfb97cc37dd656e3ab632b9dafe407feda58ea538ce95";
+
+    @Test
+    void knownTokensAreServedFromTheCache() {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(SECRET, 60_000L, 100);
+        String token = jwtTokenProvider.generateToken(authentication());
+
+        Claims claims = jwtTokenProvider.getClaims(token);
+
+        assertThat(jwtTokenProvider.getClaims(token)).isSameAs(claims);
+        assertThat(jwtTokenProvider.getUsername(token)).isEqualTo("alice");
+        assertThat(jwtTokenProvider.getVerifiedTokens().stats().hitCount()).isEqualTo(2);
+        assertThat(jwtTokenProvider.getVerifiedTokens().stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedTokensExpireTogetherWithTheToken() throws Exception {
+        //the exp claim has second precision, two seconds keep the token valid for at least one
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(SECRET, 2_000L, 100);
+        String token = jwtTokenProvider.generateToken(authentication());
+
+        jwtTokenProvider.getClaims(token);
+        assertThat(jwtTokenProvider.getVerifiedTokens().getIfPresent(token)).isNotNull();
+
+        Thread.sleep(2_100);
+
+        assertThat(jwtTokenProvider.getVerifiedTokens().getIfPresent(token)).isNull();
+        assertThatThrownBy(() -> jwtTokenProvider.getClaims(token))
+                .isInstanceOf(BlogAPIException.class)
+                .hasMessage("Expired JWT token");
+    }
+
+    @Test
+    void tamperedTokensAreRejectedAndNotCached() {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(SECRET, 60_000L, 100);
+        String token = jwtTokenProvider.generateToken(authentication());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtTokenProvider.getClaims(tampered)).isInstanceOf(RuntimeException.class);
+        assertThat(jwtTokenProvider.getVerifiedTokens().getIfPresent(tampered)).isNull();
+    }
+
+    @Test
+    void theClaimsCarryTheRolesAndTheAuthVersion() {
+        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(SECRET, 60_000L, 100);
+        String token = jwtTokenProvider.generateToken(authentication());
+
+        BlogUserDetails userDetails = jwtTokenProvider.getUserDetails(jwtTokenProvider.getClaims(token));
+
+        assertThat(userDetails.getUsername()).isEqualTo("alice");
+        assertThat(userDetails.getAuthVersion()).isEqualTo(3L);
+        assertThat(userDetails.getAuthorities()).extracting(Object::toString).containsExactly("ROLE_USER");
+    }
+
+
+    private UsernamePasswordAuthenticationToken authentication() {
+        Set<SimpleGrantedAuthority> authorities = Set.of(new SimpleGrantedAuthority("ROLE_USER"));
+        BlogUserDetails userDetails = new BlogUserDetails("alice", "", authorities, 3L);
+        return new UsernamePasswordAuthenticationToken(userDetails, null, List.copyOf(authorities));
+    }
+}
@@ -0,0 +1,169 @@
+package gr.example.blog.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServlet;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitFilterTests {
+
+    @Test
+    void zeroRefillIsRejectedAtStartup() {
+        MockEnvironment environment = environment().withProperty("app.rate-limit.auth.refill-per-minute", "0");
+
+        assertThatThrownBy(() -> filter(environment))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("app.rate-limit.auth.refill-per-minute must be greater than 0, was 0");
+    }
+
+    @Test
+    void negativeCapacityIsRejectedAtStartup() {
+        MockEnvironment environment = environment().withProperty("app.rate-limit.comment-writes.capacity", "-5");
+
+        assertThatThrownBy(() -> filter(environment))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("app.rate-limit.comment-writes.capacity must be greater than 0, was -5");
+    }
+
+    @Test
+    void loginsRefusedOnTheAddressDoNotDrainTheAccount() throws Exception {
+        RateLimitFilter filter = filter(environment());
+
+        //the attacker uses up its own address on other accounts first
+        assertThat(login(filter, "10.0.0.1", "someone")).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(filter, "10.0.0.1", "someone-else")).isEqualTo(HttpStatus.OK.value());
+        for (int i = 0; i < 5; i++) {
+            assertThat(login(filter, "10.0.0.1", "victim")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+        }
+
+        assertThat(login(filter, "10.0.0.2", "victim")).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(filter, "10.0.0.3", "victim")).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(filter, "10.0.0.4", "victim")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    @Test
+    void aRefusalOnTheAccountGivesTheAddressItsTokenBack() throws Exception {
+        RateLimitFilter filter = filter(environment());
+
+        assertThat(login(filter, "10.0.0.1", "victim")).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(filter, "10.0.0.2", "victim")).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(filter, "10.0.0.3", "victim")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS.value());
+
+        assertThat(login(filter, "10.0.0.3", "someone")).isEqualTo(HttpStatus.OK.value());
+        assertThat(login(filter, "10.0.0.3", "someone-else")).isEqualTo(HttpStatus.OK.value());
+    }
+
+    @Test
+    void theBufferedLoginBodyCanBeReadWithAReadListener() throws Exception {
+        MockHttpServletRequest request = loginRequest("10.0.0.1", "someone");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        List<String> events = new ArrayList<>();
+
+        Filter reader = (servletRequest, servletResponse, chain) -> {
+            ServletInputStream inputStream = servletRequest.getInputStream();
+            inputStream.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    events.add("data");
+                    byte[] buffer = new byte[16];
+                    int read;
+                    while (inputStream.isReady() && (read = inputStream.read(buffer)) != -1) {
+                        body.write(buffer, 0, read);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    events.add("done");
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    events.add("error");
+                }
+            });
+        };
+        filter(environment()).doFilter(request, new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                }, reader));
+
+        assertThat(events).containsExactly("data", "done");
+        assertThat(body.toByteArray()).isEqualTo(request.getContentAsByteArray());
+    }
+
+    @Test
+    void readErrorsGoToTheReadListener() throws Exception {
+        List<Throwable> errors = new ArrayList<>();
+
+        Filter reader = (servletRequest, servletResponse, chain) ->
+                servletRequest.getInputStream().setReadListener(new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+        filter(environment()).doFilter(loginRequest("10.0.0.1", "someone"), new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                }, reader));
+
+        assertThat(errors).singleElement().extracting(Throwable::getMessage).isEqualTo("Connection reset");
+    }
+
+
+    private int login(RateLimitFilter filter, String address, String account) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(loginRequest(address, account), response, new MockFilterChain());
+        return response.getStatus();
+    }
+
+    private MockHttpServletRequest loginRequest(String address, String account) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/login");
+        request.setRemoteAddr(address);
+        request.setContentType("application/json");
+        request.setContent(("{\"usernameOrEmail\":\"" + account + "\",\"password\":\"secret\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private RateLimitFilter filter(MockEnvironment environment) {
+        return new RateLimitFilter(environment, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    private MockEnvironment environment() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.rate-limit.enabled", "true")
+                .withProperty("app.rate-limit.max-keys", "1000")
+                .withProperty("app.rate-limit.idle-seconds", "600");
+        for (RateLimitGroup group : RateLimitGroup.values()) {
+            environment.setProperty("app.rate-limit." + group.getPropertyName() + ".capacity", "2");
+            environment.setProperty("app.rate-limit." + group.getPropertyName() + ".refill-per-minute", "1");
+        }
+        return environment;
+    }
+}
@@ -0,0 +1,112 @@
+package gr.example.blog.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//The clock is moved by hand, one token is refilled every 1000 nanoseconds
+class TokenBucketTests {
+
+    private static final long INTERVAL = 1000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private final TokenBucket bucket = new TokenBucket(3, INTERVAL, now::get);
+
+    @Test
+    void aFullBucketServesItsCapacityThenReportsTheWait() {
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+
+        assertThat(bucket.tryConsume()).isEqualTo(INTERVAL);
+        now.addAndGet(400);
+        assertThat(bucket.tryConsume()).isEqualTo(600);
+    }
+
+    @Test
+    void tokensAreRefilledOnePerInterval() {
+        drain();
+
+        now.addAndGet(INTERVAL);
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isEqualTo(INTERVAL);
+
+        now.addAndGet(2 * INTERVAL);
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isPositive();
+    }
+
+    @Test
+    void anIdleBucketNeverHoldsMoreThanItsCapacity() {
+        drain();
+
+        now.addAndGet(1_000 * INTERVAL);
+        assertThat(drain()).isEqualTo(3);
+    }
+
+    @Test
+    void aRefundGivesOneTokenBack() {
+        drain();
+
+        bucket.refund();
+        assertThat(bucket.tryConsume()).isZero();
+        assertThat(bucket.tryConsume()).isPositive();
+    }
+
+    @Test
+    void aRefundDoesNotOverfillTheBucket() {
+        bucket.refund();
+        bucket.tryConsume();
+        bucket.refund();
+        bucket.refund();
+
+        assertThat(drain()).isEqualTo(3);
+    }
+
+    @Test
+    void concurrentRequestsNeverTakeMoreThanTheCapacity() throws Exception {
+        TokenBucket shared = new TokenBucket(100, INTERVAL, now::get);
+        AtomicInteger taken = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        if (shared.tryConsume() == 0) {
+                            taken.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(taken.get()).isEqualTo(100);
+    }
+
+
+    private int drain() {
+        int taken = 0;
+        while (bucket.tryConsume() == 0) {
+            taken++;
+        }
+        return taken;
+    }
+}
@@ -0,0 +1,94 @@
+package gr.example.blog.security;
+
+import gr.example.blog.model.Role;
+import gr.example.blog.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+//Changes to users and roles evict the caches only once the transaction has committed
+class UserCacheEvictionListenerTests {
+
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+    private final UserAuthVersions userAuthVersions = mock(UserAuthVersions.class);
+    private final UserCacheEvictionListener listener = new UserCacheEvictionListener(
+            provider(userDetailsService), provider(userAuthVersions));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void userChangesAreEvictedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        User user = user();
+
+        listener.onChange(user);
+        //the keys are taken when the change is seen
+        user.setEmail("changed@example.com");
+
+        verify(userDetailsService, never()).evict("alice", "alice@example.com");
+        verify(userAuthVersions, never()).evict("alice@example.com");
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(userDetailsService).evict("alice", "alice@example.com");
+        verify(userAuthVersions).evict("alice@example.com");
+    }
+
+    @Test
+    void rolledBackChangesAreNotEvicted() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onChange(user());
+        TransactionSynchronizationManager.getSynchronizations().forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verify(userDetailsService, never()).evict("alice", "alice@example.com");
+        verify(userAuthVersions, never()).evict("alice@example.com");
+    }
+
+    @Test
+    void roleChangesEvictEveryUserAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        listener.onChange(new Role(1L, "ROLE_USER"));
+        verify(userDetailsService, never()).evictAll();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(userDetailsService).evictAll();
+    }
+
+    @Test
+    void changesOutsideATransactionAreEvictedAtOnce() {
+        listener.onChange(user());
+
+        verify(userDetailsService).evict("alice", "alice@example.com");
+        verify(userAuthVersions).evict("alice@example.com");
+    }
+
+
+    private User user() {
+        User user = new User();
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> ObjectProvider<T> provider(T bean) {
+        ObjectProvider<T> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(bean);
+        return provider;
+    }
+}
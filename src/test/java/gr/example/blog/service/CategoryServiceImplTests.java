@@ -0,0 +1,143 @@
+package gr.example.blog.service;
+
+import gr.example.blog.dto.CategoryDto;
+import gr.example.blog.mapper.CategoryMapperImpl;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.CategoryRepository;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.service.event.PostChangedEvent;
+import gr.example.blog.service.impl.CategoryServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Categories come from the second level cache once read, and writes keep the cache current.
+//Every call commits on its own, the cache is only filled and updated by committed transactions
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CategoryServiceImpl.class, CategoryMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class CategoryServiceImplTests {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ApplicationEvents applicationEvents;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        CategoryDto categoryDto = new CategoryDto();
+        categoryDto.setName("Java");
+        categoryDto.setDescription("Posts about Java");
+        category = categoryService.addCategory(categoryDto);
+
+        entityManagerFactory.getCache().evictAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void categoriesAreReadFromTheDatabaseOnlyOnce() throws Exception {
+        categoryService.getCategoryById(category.getId());
+        long statements = statistics.getPrepareStatementCount();
+
+        Category cached = categoryService.getCategoryById(category.getId());
+
+        assertThat(cached.getName()).isEqualTo("Java");
+        assertThat(statements).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void updatesReplaceTheCachedCategory() throws Exception {
+        categoryService.getCategoryById(category.getId());
+
+        CategoryDto categoryDto = new CategoryDto();
+        categoryDto.setId(category.getId());
+        categoryDto.setName("Kotlin");
+        categoryDto.setDescription("Posts about Kotlin");
+        categoryService.updateCategory(categoryDto);
+        statistics.clear();
+
+        assertThat(categoryService.getCategoryById(category.getId()).getName()).isEqualTo("Kotlin");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void theListOfCategoriesIsCachedUntilACategoryChanges() {
+        categoryService.getAllCategories();
+        statistics.clear();
+
+        assertThat(categoryService.getAllCategories()).extracting(Category::getName).containsExactly("Java");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        CategoryDto categoryDto = new CategoryDto();
+        categoryDto.setName("Kotlin");
+        categoryDto.setDescription("Posts about Kotlin");
+        categoryService.addCategory(categoryDto);
+        statistics.clear();
+
+        assertThat(categoryService.getAllCategories()).extracting(Category::getName)
+                .containsExactlyInAnyOrder("Java", "Kotlin");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deletingACategoryReportsItsPostsAsDeleted() throws Exception {
+        Long first = post("First").getId();
+        Long second = post("Second").getId();
+
+        categoryService.deleteCategoryById(category.getId());
+
+        assertThat(applicationEvents.stream(PostChangedEvent.class))
+                .allMatch(PostChangedEvent::isDeleted)
+                .extracting(PostChangedEvent::getPostId)
+                .containsExactlyInAnyOrder(first, second);
+        assertThat(postRepository.count()).isZero();
+    }
+
+
+    private Post post(String title) {
+        Post post = new Post();
+        post.setTitle(title);
+        post.setDescription("Description of " + title);
+        post.setContent("Content of " + title);
+        post.setCategory(category);
+        return postRepository.save(post);
+    }
+}
@@ -0,0 +1,165 @@
+package gr.example.blog.service;
+
+import gr.example.blog.dto.CommentDto;
+import gr.example.blog.mapper.CommentMapperImpl;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Comment;
+import gr.example.blog.model.Post;
+import gr.example.blog.service.exception.BlogAPIException;
+import gr.example.blog.service.exception.ResourceNotFoundException;
+import gr.example.blog.service.impl.CommentServiceImpl;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//Creating a comment touches the post only through the counter update, and single comments
+//are read, updated and deleted only through the post they belong to
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({CommentServiceImpl.class, CommentMapperImpl.class})
+class CommentServiceImplTests {
+
+    @MockBean
+    private Validator validator;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CommentService commentService;
+
+    private Statistics statistics;
+
+    private Post post;
+
+    private Post otherPost;
+
+    private Comment comment;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        entityManager.persist(category);
+
+        post = new Post();
+        post.setTitle("Post");
+        post.setDescription("Description");
+        post.setContent("Content");
+        post.setCategory(category);
+        entityManager.persist(post);
+
+        otherPost = new Post();
+        otherPost.setTitle("Other post");
+        otherPost.setDescription("Description");
+        otherPost.setContent("Content");
+        otherPost.setCategory(category);
+        otherPost.setCommentCount(1L);
+        entityManager.persist(otherPost);
+
+        comment = new Comment();
+        comment.setName("Writer");
+        comment.setEmail("writer@example.com");
+        comment.setBody("A comment of the other post");
+        comment.setPost(otherPost);
+        entityManager.persist(comment);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void createCommentDoesNotLoadThePost() throws Exception {
+        Comment comment = commentService.createComment(post.getId(), commentDto());
+        entityManager.flush();
+
+        assertThat(statistics.getEntityStatistics(Post.class.getName()).getLoadCount()).isZero();
+        assertThat(statistics.getEntityStatistics(Comment.class.getName()).getInsertCount()).isEqualTo(1);
+
+        entityManager.clear();
+        Post found = entityManager.find(Post.class, post.getId());
+        assertThat(found.getCommentCount()).isEqualTo(1L);
+        assertThat(entityManager.find(Comment.class, comment.getId()).getPost().getId()).isEqualTo(post.getId());
+    }
+
+    @Test
+    void createCommentOnAMissingPostIsNotFound() {
+        assertThatThrownBy(() -> commentService.createComment(post.getId() + 1000, commentDto()))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        entityManager.flush();
+        assertThat(statistics.getEntityStatistics(Comment.class.getName()).getInsertCount()).isZero();
+    }
+
+    @Test
+    void getCommentByIdReadsOnlyCommentsOfThePost() throws Exception {
+        assertThat(commentService.getCommentById(otherPost.getId(), comment.getId()).getBody())
+                .isEqualTo("A comment of the other post");
+
+        assertThatThrownBy(() -> commentService.getCommentById(post.getId(), comment.getId()))
+                .isInstanceOfSatisfying(BlogAPIException.class, ex ->
+                        assertThat(ex.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> commentService.getCommentById(otherPost.getId() + 1000, comment.getId()))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> commentService.getCommentById(otherPost.getId(), comment.getId() + 1000))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void updateCommentChangesOnlyCommentsOfThePost() throws Exception {
+        assertThatThrownBy(() -> commentService.updateComment(post.getId(), comment.getId(), commentDto()))
+                .isInstanceOf(BlogAPIException.class);
+        entityManager.clear();
+        assertThat(entityManager.find(Comment.class, comment.getId()).getBody()).isEqualTo("A comment of the other post");
+
+        Comment updated = commentService.updateComment(otherPost.getId(), comment.getId(), commentDto());
+        entityManager.clear();
+
+        assertThat(updated.getId()).isEqualTo(comment.getId());
+        Comment found = entityManager.find(Comment.class, comment.getId());
+        assertThat(found.getBody()).isEqualTo("A comment body");
+        assertThat(found.getVersion()).isEqualTo(comment.getVersion() + 1);
+        assertThat(entityManager.find(Post.class, otherPost.getId()).getCommentCount()).isEqualTo(1L);
+    }
+
+    @Test
+    void deleteCommentRemovesOnlyCommentsOfThePost() throws Exception {
+        assertThatThrownBy(() -> commentService.deleteComment(post.getId(), comment.getId()))
+                .isInstanceOf(BlogAPIException.class);
+        entityManager.clear();
+        assertThat(entityManager.find(Comment.class, comment.getId())).isNotNull();
+
+        assertThat(commentService.deleteComment(otherPost.getId(), comment.getId()).getId()).isEqualTo(comment.getId());
+        entityManager.clear();
+
+        assertThat(entityManager.find(Comment.class, comment.getId())).isNull();
+        assertThat(entityManager.find(Post.class, otherPost.getId()).getCommentCount()).isZero();
+    }
+
+
+    private CommentDto commentDto() {
+        CommentDto commentDto = new CommentDto();
+        commentDto.setName("Reader");
+        commentDto.setEmail("reader@example.com");
+        commentDto.setBody("A comment body");
+        return commentDto;
+    }
+}
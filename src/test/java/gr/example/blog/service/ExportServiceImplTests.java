@@ -0,0 +1,160 @@
+package gr.example.blog.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gr.example.blog.dto.ExportFormat;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Comment;
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.service.impl.ExportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Both export formats, read one row per chunk so the comments of a post span several chunks
+@DataJpaTest
+class ExportServiceImplTests {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ExportServiceImpl exportService;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportServiceImpl(postRepository, transactionManager, objectMapper, 1, 30);
+
+        category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        entityManager.persist(category);
+    }
+
+    @Test
+    void ndjsonWritesEveryPostFollowedByItsComments() throws Exception {
+        Post first = post("First", "Description", "Content");
+        Comment firstComment = comment(first, "Reader", "reader@example.com", "First comment");
+        Comment secondComment = comment(first, "Writer", "writer@example.com", "Second comment");
+        Post second = post("Second", "Description", "Content");
+        entityManager.flush();
+
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : export(ExportFormat.NDJSON).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+
+        assertThat(lines).hasSize(4);
+        assertThat(lines.get(0).get("type").asText()).isEqualTo("post");
+        assertThat(lines.get(0).get("id").asLong()).isEqualTo(first.getId());
+        assertThat(lines.get(0).get("title").asText()).isEqualTo("First");
+        assertThat(lines.get(0).get("categoryId").asLong()).isEqualTo(category.getId());
+
+        assertThat(lines.get(1).get("type").asText()).isEqualTo("comment");
+        assertThat(lines.get(1).get("id").asLong()).isEqualTo(firstComment.getId());
+        assertThat(lines.get(1).get("postId").asLong()).isEqualTo(first.getId());
+        assertThat(lines.get(1).get("body").asText()).isEqualTo("First comment");
+        assertThat(lines.get(2).get("id").asLong()).isEqualTo(secondComment.getId());
+
+        assertThat(lines.get(3).get("type").asText()).isEqualTo("post");
+        assertThat(lines.get(3).get("id").asLong()).isEqualTo(second.getId());
+    }
+
+    @Test
+    void csvWritesAHeaderAndOneLinePerRow() throws Exception {
+        Post post = post("Title", "Description", "Content");
+        Comment comment = comment(post, "Reader", "reader@example.com", "Body");
+        entityManager.flush();
+
+        assertThat(export(ExportFormat.CSV)).isEqualTo(
+                "type,post_id,comment_id,title,description,content,category_id,name,email,body\n" +
+                "post," + post.getId() + ",,Title,Description,Content," + category.getId() + ",,,\n" +
+                "comment," + post.getId() + "," + comment.getId() + ",,,,,Reader,reader@example.com,Body\n");
+    }
+
+    @Test
+    void csvQuotesValuesWithSeparatorsQuotesAndLineBreaks() throws Exception {
+        Post post = post("Commas, everywhere", "Say \"hi\"", "Line one\nLine two");
+        comment(post, "Reader", "reader@example.com", "Carriage\r\nreturn");
+        entityManager.flush();
+
+        String[] lines = export(ExportFormat.CSV).split("\n", 2);
+
+        assertThat(lines[1]).startsWith("post," + post.getId() + ",," +
+                "\"Commas, everywhere\",\"Say \"\"hi\"\"\",\"Line one\nLine two\"," + category.getId() + ",,,\n");
+        assertThat(lines[1]).endsWith(",Reader,reader@example.com,\"Carriage\r\nreturn\"\n");
+    }
+
+    @Test
+    void chunksEndAnywhereInThePostsAndTheirComments() throws Exception {
+        exportService = new ExportServiceImpl(postRepository, transactionManager, objectMapper, 2, 30);
+        Post first = post("First", "Description", "Content");
+        Comment firstComment = comment(first, "Reader", "reader@example.com", "One");
+        Comment secondComment = comment(first, "Reader", "reader@example.com", "Two");
+        Comment thirdComment = comment(first, "Reader", "reader@example.com", "Three");
+        Post second = post("Second", "Description", "Content");
+        Post third = post("Third", "Description", "Content");
+        Comment fourthComment = comment(third, "Reader", "reader@example.com", "Four");
+        entityManager.flush();
+
+        List<Long> ids = new ArrayList<>();
+        for (String line : export(ExportFormat.NDJSON).split("\n")) {
+            ids.add(objectMapper.readTree(line).get("id").asLong());
+        }
+
+        assertThat(ids).containsExactly(first.getId(), firstComment.getId(), secondComment.getId(),
+                thirdComment.getId(), second.getId(), third.getId(), fourthComment.getId());
+    }
+
+    @Test
+    void anEmptyDatabaseExportsOnlyTheHeader() throws Exception {
+        assertThat(export(ExportFormat.NDJSON)).isEmpty();
+        assertThat(export(ExportFormat.CSV))
+                .isEqualTo("type,post_id,comment_id,title,description,content,category_id,name,email,body\n");
+    }
+
+
+    private String export(ExportFormat format) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportService.exportPosts(outputStream, format);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private Post post(String title, String description, String content) {
+        Post post = new Post();
+        post.setTitle(title);
+        post.setDescription(description);
+        post.setContent(content);
+        post.setCategory(category);
+        return entityManager.persist(post);
+    }
+
+    private Comment comment(Post post, String name, String email, String body) {
+        Comment comment = new Comment();
+        comment.setName(name);
+        comment.setEmail(email);
+        comment.setBody(body);
+        comment.setPost(post);
+        return entityManager.persist(comment);
+    }
+}
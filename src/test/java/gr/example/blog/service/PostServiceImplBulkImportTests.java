@@ -0,0 +1,166 @@
+package gr.example.blog.service;
+
+import gr.example.blog.dto.BulkImportResponse;
+import gr.example.blog.dto.BulkItemResult;
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.mapper.CommentMapperImpl;
+import gr.example.blog.mapper.PostMapperImpl;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.CategoryRepository;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.search.PostSearchIndex;
+import gr.example.blog.service.exception.BlogAPIException;
+import gr.example.blog.service.impl.PostServiceImpl;
+import gr.example.blog.service.util.AppConstants;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validator;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//Bulk imports report every item on its own and write the valid ones in jdbc batches.
+//Chunks commit on their own, so the test runs outside of a test transaction
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({PostServiceImpl.class, PostMapperImpl.class, CommentMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostServiceImplBulkImportTests {
+
+    @MockBean
+    private PostSearchIndex postSearchIndex;
+
+    @MockBean
+    private Validator validator;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        category = categoryRepository.save(category);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        postRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void everyItemGetsItsOwnResult() {
+        Post existing = new Post();
+        existing.setTitle("Existing");
+        existing.setDescription("Description");
+        existing.setContent("Content");
+        existing.setCategory(category);
+        postRepository.save(existing);
+
+        BulkImportResponse response = postService.createPosts(List.of(
+                postDto("First", category.getId()),
+                postDto("Unknown category", category.getId() + 1000),
+                postDto("Existing", category.getId()),
+                postDto("First", category.getId()),
+                postDto("Second", category.getId())));
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(3);
+        assertThat(response.getResults()).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2, 3, 4);
+        assertThat(response.getResults()).extracting(BulkItemResult::getStatus).containsExactly(
+                BulkItemResult.CREATED, BulkItemResult.FAILED, BulkItemResult.FAILED, BulkItemResult.FAILED,
+                BulkItemResult.CREATED);
+        assertThat(response.getResults().get(1).getMessage()).startsWith("Category not found");
+        assertThat(response.getResults().get(2).getMessage()).isEqualTo("Title already exists");
+        assertThat(response.getResults().get(3).getMessage()).isEqualTo("Title already exists");
+
+        assertThat(postRepository.findById(response.getResults().get(0).getId()))
+                .hasValueSatisfying(post -> assertThat(post.getTitle()).isEqualTo("First"));
+        assertThat(postRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void postsAreInsertedInBatches() {
+        List<PostDto> postDtos = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            postDtos.add(postDto("Post " + i, category.getId()));
+        }
+
+        BulkImportResponse response = postService.createPosts(postDtos);
+
+        assertThat(response.getCreated()).isEqualTo(40);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(40);
+        //the category and title checks, a pooled id block and one insert batch, not a statement per post
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(10);
+    }
+
+    @Test
+    void titlesOfARolledBackChunkCanBeWrittenByALaterChunk() {
+        //the too long title fails the insert and rolls the whole first chunk back
+        List<PostDto> postDtos = new ArrayList<>();
+        postDtos.add(postDto("Retried", category.getId()));
+        postDtos.add(postDto("x".repeat(300), category.getId()));
+        for (int i = 2; i < AppConstants.BULK_CHUNK_SIZE; i++) {
+            postDtos.add(postDto("Post " + i, category.getId()));
+        }
+        postDtos.add(postDto("Retried", category.getId()));
+
+        BulkImportResponse response = postService.createPosts(postDtos);
+
+        assertThat(response.getResults().get(0).getMessage()).isEqualTo("Batch could not be written");
+        assertThat(response.getResults().get(AppConstants.BULK_CHUNK_SIZE).getStatus())
+                .isEqualTo(BulkItemResult.CREATED);
+        assertThat(response.getCreated()).isEqualTo(1);
+        assertThat(postRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void requestsAboveTheLimitAreRejected() {
+        List<PostDto> postDtos = Collections.nCopies(AppConstants.MAX_BULK_SIZE + 1, postDto("Post", category.getId()));
+
+        assertThatThrownBy(() -> postService.createPosts(postDtos)).isInstanceOf(BlogAPIException.class);
+        assertThat(postRepository.count()).isZero();
+    }
+
+
+    private PostDto postDto(String title, Long categoryId) {
+        PostDto postDto = new PostDto();
+        postDto.setTitle(title);
+        postDto.setDescription("Description of " + title);
+        postDto.setContent("Content of " + title);
+        postDto.setCategoryId(categoryId);
+        return postDto;
+    }
+}
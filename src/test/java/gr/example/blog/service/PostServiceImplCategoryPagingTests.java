@@ -0,0 +1,130 @@
+package gr.example.blog.service;
+
+import gr.example.blog.dto.PostCursorResponse;
+import gr.example.blog.dto.PostSummaryDto;
+import gr.example.blog.mapper.CommentMapperImpl;
+import gr.example.blog.mapper.PostMapperImpl;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Post;
+import gr.example.blog.search.PostSearchIndex;
+import gr.example.blog.service.exception.ResourceNotFoundException;
+import gr.example.blog.service.impl.PostServiceImpl;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//Keyset pages of the posts of a category. Java and Kotlin posts are interleaved,
+//so a seek that ignores the category would show up in the pages
+@DataJpaTest
+@Import({PostServiceImpl.class, PostMapperImpl.class, CommentMapperImpl.class})
+class PostServiceImplCategoryPagingTests {
+
+    @MockBean
+    private PostSearchIndex postSearchIndex;
+
+    @MockBean
+    private Validator validator;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private PostService postService;
+
+    private Category java;
+
+    private Category empty;
+
+    private final List<Long> javaPostIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        java = category("Java");
+        Category kotlin = category("Kotlin");
+        empty = category("Empty");
+
+        for (int i = 0; i < 5; i++) {
+            javaPostIds.add(post("Java post " + i, java).getId());
+            post("Kotlin post " + i, kotlin);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesWalkThePostsOfTheCategoryOnly() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        PostCursorResponse page = postService.getPostsByCategory(java.getId(), null, 2, "id", "asc");
+        seen.addAll(ids(page));
+        assertThat(page.getPrevCursor()).isNull();
+
+        while (page.getNextCursor() != null) {
+            page = postService.getPostsByCategory(java.getId(), page.getNextCursor(), 2, "id", "asc");
+            seen.addAll(ids(page));
+        }
+
+        assertThat(seen).containsExactlyElementsOf(javaPostIds);
+    }
+
+    @Test
+    void thePreviousCursorReturnsTheSamePage() throws Exception {
+        PostCursorResponse first = postService.getPostsByCategory(java.getId(), null, 2, "title", "desc");
+        PostCursorResponse second = postService.getPostsByCategory(java.getId(), first.getNextCursor(), 2, "id", "asc");
+        PostCursorResponse back = postService.getPostsByCategory(java.getId(), second.getPrevCursor(), 2, "id", "asc");
+
+        assertThat(first.getContent()).extracting(PostSummaryDto::getTitle)
+                .containsExactly("Java post 4", "Java post 3");
+        //the cursor keeps the sort of the first page
+        assertThat(second.getContent()).extracting(PostSummaryDto::getTitle)
+                .containsExactly("Java post 2", "Java post 1");
+        assertThat(ids(back)).isEqualTo(ids(first));
+        assertThat(back.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    void anEmptyCategoryHasAnEmptyPage() throws Exception {
+        PostCursorResponse page = postService.getPostsByCategory(empty.getId(), null, 2, "id", "asc");
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void aMissingCategoryIsNotFound() {
+        assertThatThrownBy(() -> postService.getPostsByCategory(empty.getId() + 1000, null, 2, "id", "asc"))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+
+    private List<Long> ids(PostCursorResponse page) {
+        return page.getContent().stream().map(PostSummaryDto::getId).toList();
+    }
+
+    private Category category(String name) {
+        Category category = new Category();
+        category.setName(name);
+        category.setDescription("Posts about " + name);
+        return entityManager.persist(category);
+    }
+
+    private Post post(String title, Category category) {
+        Post post = new Post();
+        post.setTitle(title);
+        post.setDescription("Description of " + title);
+        post.setContent("Content of " + title);
+        post.setCategory(category);
+        return entityManager.persist(post);
+    }
+}
@@ -0,0 +1,135 @@
+package gr.example.blog.service;
+
+import gr.example.blog.dto.CommentDto;
+import gr.example.blog.dto.PostDto;
+import gr.example.blog.mapper.CommentMapperImpl;
+import gr.example.blog.mapper.PostMapperImpl;
+import gr.example.blog.model.Category;
+import gr.example.blog.model.Post;
+import gr.example.blog.repository.CategoryRepository;
+import gr.example.blog.repository.CommentRepository;
+import gr.example.blog.repository.PostRepository;
+import gr.example.blog.search.PostSearchIndex;
+import gr.example.blog.service.impl.CommentServiceImpl;
+import gr.example.blog.service.impl.PostServiceImpl;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//A comment committed while a post update is running must not fail the update.
+//Every call commits on its own, the comment commits in between the read and the write of the update
+@DataJpaTest
+@Import({PostServiceImpl.class, CommentServiceImpl.class, PostMapperImpl.class, CommentMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PostServiceImplConcurrentUpdateTests {
+
+    @MockBean
+    private PostSearchIndex postSearchIndex;
+
+    @MockBean
+    private Validator validator;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private CommentRepository commentRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Category category;
+
+    private Post post;
+
+    @BeforeEach
+    void setUp() {
+        category = new Category();
+        category.setName("Java");
+        category.setDescription("Posts about Java");
+        category = categoryRepository.save(category);
+
+        post = new Post();
+        post.setTitle("Post");
+        post.setDescription("Description");
+        post.setContent("Content");
+        post.setCategory(category);
+        post = postRepository.save(post);
+    }
+
+    @AfterEach
+    void tearDown() {
+        commentRepository.deleteAll();
+        postRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    void aCommentCommittedDuringTheUpdateDoesNotFailIt() {
+        TransactionTemplate comments = new TransactionTemplate(transactionManager);
+        comments.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            //the update reads the post before the comment commits
+            postRepository.findById(post.getId()).orElseThrow();
+
+            comments.executeWithoutResult(inner -> createComment());
+
+            updatePost();
+        });
+
+        Post found = postRepository.findById(post.getId()).orElseThrow();
+        assertThat(found.getTitle()).isEqualTo("Post edited");
+        assertThat(found.getCommentCount()).isEqualTo(1L);
+        //one raise for the comment and one for the update
+        assertThat(found.getVersion()).isEqualTo(post.getVersion() + 2);
+    }
+
+
+    private void createComment() {
+        CommentDto commentDto = new CommentDto();
+        commentDto.setName("Reader");
+        commentDto.setEmail("reader@example.com");
+        commentDto.setBody("A comment body");
+        try {
+            commentService.createComment(post.getId(), commentDto);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void updatePost() {
+        PostDto postDto = new PostDto();
+        postDto.setId(post.getId());
+        postDto.setTitle("Post edited");
+        postDto.setDescription("Description edited");
+        postDto.setContent("Content edited");
+        postDto.setCategoryId(category.getId());
+        try {
+            postService.updatePost(postDto);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
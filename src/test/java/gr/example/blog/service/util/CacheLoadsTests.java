@@ -0,0 +1,95 @@
+package gr.example.blog.service.util;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//One load per key, failures and invalidations during the load leave nothing cached
+class CacheLoadsTests {
+
+    private final AsyncCache<String, String> cache = Caffeine.newBuilder().recordStats().buildAsync();
+
+    @Test
+    void loadedValuesAreCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(CacheLoads.get(cache, "key", key -> key + "-" + loads.incrementAndGet())).isEqualTo("key-1");
+        assertThat(CacheLoads.get(cache, "key", key -> key + "-" + loads.incrementAndGet())).isEqualTo("key-1");
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.synchronous().stats().hitCount()).isEqualTo(1);
+        assertThat(cache.synchronous().stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentCallersWaitForTheFirstLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> CacheLoads.get(cache, "key", key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return "value";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> CacheLoads.get(cache, "key", key -> {
+            loads.incrementAndGet();
+            return "other";
+        }));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void failedLoadsAreRetriedByTheNextCaller() {
+        assertThatThrownBy(() -> CacheLoads.get(cache, "key", key -> {
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("database down");
+
+        assertThat(cache.getIfPresent("key")).isNull();
+        assertThat(CacheLoads.get(cache, "key", key -> "value")).isEqualTo("value");
+    }
+
+    @Test
+    void nullValuesAreNotCached() {
+        assertThat(CacheLoads.get(cache, "key", key -> null)).isNull();
+
+        assertThat(cache.getIfPresent("key")).isNull();
+        assertThat(CacheLoads.get(cache, "key", key -> "value")).isEqualTo("value");
+    }
+
+    @Test
+    void aKeyInvalidatedDuringItsLoadIsNotCached() {
+        String value = CacheLoads.get(cache, "key", key -> {
+            cache.synchronous().invalidate(key);
+            return "stale";
+        });
+
+        assertThat(value).isEqualTo("stale");
+        assertThat(cache.getIfPresent("key")).isNull();
+        assertThat(CacheLoads.get(cache, "key", key -> "fresh")).isEqualTo("fresh");
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}